@@ -0,0 +1,44 @@
+package com.cme.pricingValidation.benchmark;
+
+import com.cme.pricingValidation.model.PriceRecord;
+import com.cme.pricingValidation.service.CSVReader;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Parsing a price file: {@link CSVReader#read} building the whole list, and
+ * {@link CSVReader#stream} reading record by record from the file as streaming uploads do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CsvReaderBenchmark {
+
+    private final CSVReader reader = new CSVReader();
+    private MockMultipartFile upload;
+
+    @Setup(Level.Trial)
+    public void setUp(PriceFile file) throws IOException {
+        upload = new MockMultipartFile("file", "prices.csv", "text/csv", Files.readAllBytes(file.path));
+    }
+
+    @Benchmark
+    public List<PriceRecord> read() throws IOException {
+        return reader.read(upload);
+    }
+
+    @Benchmark
+    public long stream(PriceFile file) throws IOException {
+        try (InputStream in = Files.newInputStream(file.path);
+             Stream<PriceRecord> records = reader.stream(in, "prices.csv")) {
+            return records.count();
+        }
+    }
+}
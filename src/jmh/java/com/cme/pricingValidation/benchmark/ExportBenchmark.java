@@ -0,0 +1,62 @@
+package com.cme.pricingValidation.benchmark;
+
+import com.cme.pricingValidation.PricingValidationApplication;
+import com.cme.pricingValidation.model.PriceRecord;
+import com.cme.pricingValidation.service.CSVReader;
+import com.cme.pricingValidation.service.IngestionService;
+import com.cme.pricingValidation.service.ReportService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * The report export, from the database cursor to the CSV bytes. The file is ingested once
+ * into the application's database per trial; the bytes are discarded, so only reading and
+ * formatting are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ExportBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private ReportService reportService;
+    private String batchId;
+
+    @Setup(Level.Trial)
+    public void setUp(PriceFile file) throws IOException {
+        context = new SpringApplicationBuilder(PricingValidationApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.jpa.show-sql=false", "logging.level.com.cme.pricingValidation=WARN",
+                        "logging.file.name=", "spring.devtools.restart.enabled=false")
+                .run();
+        reportService = context.getBean(ReportService.class);
+        try (InputStream in = Files.newInputStream(file.path);
+             Stream<PriceRecord> records = new CSVReader().stream(in, "prices.csv")) {
+            batchId = (String) context.getBean(IngestionService.class).ingest(records).get("batchId");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void exportInvalid() throws IOException {
+        reportService.writeReport(OutputStream.nullOutputStream(), batchId, false);
+    }
+
+    @Benchmark
+    public void exportFull() throws IOException {
+        reportService.writeReport(OutputStream.nullOutputStream(), batchId, true);
+    }
+}
@@ -0,0 +1,45 @@
+package com.cme.pricingValidation.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A generated price file shared by the benchmarks of a trial. Sizes and rates are JMH
+ * parameters, e.g. {@code -p rows=50000000 -p errorRate=0.2}.
+ */
+@State(Scope.Benchmark)
+public class PriceFile {
+
+    @Param({"10000", "100000"})
+    public long rows;
+
+    @Param({"0.05"})
+    public double errorRate;
+
+    @Param({"0.01"})
+    public double duplicateRate;
+
+    @Param({"42"})
+    public long seed;
+
+    public Path path;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        path = Files.createTempFile("pricing-benchmark-", ".csv");
+        new PriceFileGenerator(rows, errorRate, duplicateRate, seed).write(path);
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+}
@@ -0,0 +1,129 @@
+package com.cme.pricingValidation.benchmark;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+/**
+ * Writes synthetic price files. The same seed, row count and rates always produce the same
+ * bytes, so benchmark inputs are reproducible across machines and runs.
+ *
+ * A share of the rows carries one validation error each, cycling through the kinds of bad
+ * field, and a share repeats an earlier row exactly. Rows are written one at a time, so
+ * files of tens of millions of rows need no memory. From the command line:
+ *
+ * <pre>java -cp ... PriceFileGenerator out.csv rows [errorRate] [duplicateRate] [seed]</pre>
+ */
+public final class PriceFileGenerator {
+
+    public static final String HEADER = "instrumentGuid,tradeDate,price,exchange,productType";
+
+    private static final String[] EXCHANGES = {"CME", "NYMEX", "CBOT", "COMEX"};
+    private static final String[] PRODUCT_TYPES = {"FUT", "OPT"};
+    // fixed so that the same file validates the same way whenever it is read
+    private static final LocalDate FIRST_TRADE_DATE = LocalDate.of(2024, 1, 1);
+    private static final int RECENT_ROWS = 4096;
+
+    private final long rows;
+    private final double errorRate;
+    private final double duplicateRate;
+    private final long seed;
+
+    /**
+     * @param errorRate share of rows, between 0 and 1, with an invalid field
+     * @param duplicateRate share of rows, between 0 and 1, repeating one of the last rows written
+     */
+    public PriceFileGenerator(long rows, double errorRate, double duplicateRate, long seed) {
+        if (rows < 0 || errorRate < 0 || duplicateRate < 0 || errorRate + duplicateRate > 1) {
+            throw new IllegalArgumentException("Invalid generator settings");
+        }
+        this.rows = rows;
+        this.errorRate = errorRate;
+        this.duplicateRate = duplicateRate;
+        this.seed = seed;
+    }
+
+    public void write(Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            write(out);
+        }
+    }
+
+    public void write(OutputStream out) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        String[] recent = new String[RECENT_ROWS];
+        Writer writer = new OutputStreamWriter(new BufferedOutputStream(out, 1 << 16), StandardCharsets.UTF_8);
+        writer.write(HEADER);
+        writer.write('\n');
+        int errorKind = 0;
+        for (long row = 0; row < rows; row++) {
+            double roll = random.nextDouble();
+            String line;
+            if (roll < duplicateRate && row > 0) {
+                line = recent[random.nextInt((int) Math.min(row, RECENT_ROWS))];
+            } else {
+                line = roll < duplicateRate + errorRate ? invalidRow(random, errorKind++) : validRow(random);
+            }
+            recent[(int) (row % RECENT_ROWS)] = line;
+            writer.write(line);
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    private static String validRow(SplittableRandom random) {
+        return row(String.valueOf(random.nextLong(1, 10_000_000_000L)), tradeDate(random), price(random),
+                EXCHANGES[random.nextInt(EXCHANGES.length)], PRODUCT_TYPES[random.nextInt(PRODUCT_TYPES.length)]);
+    }
+
+    private static String invalidRow(SplittableRandom random, int kind) {
+        String guid = String.valueOf(random.nextLong(1, 10_000_000_000L));
+        String date = tradeDate(random);
+        String price = price(random);
+        String exchange = EXCHANGES[random.nextInt(EXCHANGES.length)];
+        String type = PRODUCT_TYPES[random.nextInt(PRODUCT_TYPES.length)];
+        switch (kind % 8) {
+            case 0 -> guid = "";
+            case 1 -> guid = "G" + guid;
+            case 2 -> date = date.replace('-', '/');
+            case 3 -> date = "2999-01-01";
+            case 4 -> price = "-" + price;
+            case 5 -> price = price + "5";
+            case 6 -> exchange = "LME";
+            default -> type = "SWAP";
+        }
+        return row(guid, date, price, exchange, type);
+    }
+
+    private static String tradeDate(SplittableRandom random) {
+        return FIRST_TRADE_DATE.plusDays(random.nextInt(366)).toString();
+    }
+
+    private static String price(SplittableRandom random) {
+        long cents = random.nextLong(100, 1_000_000);
+        return (cents / 100) + "." + (cents % 100 < 10 ? "0" : "") + (cents % 100);
+    }
+
+    private static String row(String guid, String date, String price, String exchange, String type) {
+        return guid + ',' + date + ',' + price + ',' + exchange + ',' + type;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: PriceFileGenerator <file> <rows> [errorRate=0.05] [duplicateRate=0.01] [seed=42]");
+            System.exit(1);
+        }
+        new PriceFileGenerator(Long.parseLong(args[1]),
+                args.length > 2 ? Double.parseDouble(args[2]) : 0.05,
+                args.length > 3 ? Double.parseDouble(args[3]) : 0.01,
+                args.length > 4 ? Long.parseLong(args[4]) : 42)
+                .write(Path.of(args[0]));
+    }
+}
@@ -0,0 +1,77 @@
+package com.cme.pricingValidation.benchmark;
+
+import com.cme.pricingValidation.model.PriceRecord;
+import com.cme.pricingValidation.model.ValidationResult;
+import com.cme.pricingValidation.service.CSVReader;
+import com.cme.pricingValidation.service.DuplicateTracker;
+import com.cme.pricingValidation.service.PriceColumns;
+import com.cme.pricingValidation.service.ValidationService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Validation of parsed records: one record at a time through
+ * {@link ValidationService#validateSingleRecord}, a whole file through
+ * {@link ValidationService#validateAll} and, read by column, through
+ * {@link ValidationService#validateColumns}, and duplicate detection alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ValidationBenchmark {
+
+    @Param({"0"})
+    public int parallelism;
+
+    private ValidationService validationService;
+    private List<PriceRecord> records;
+    private PriceColumns columns;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp(PriceFile file) throws IOException {
+        validationService = new ValidationService(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(), 10_000);
+        try (InputStream in = Files.newInputStream(file.path);
+             Stream<PriceRecord> stream = new CSVReader().stream(in, "prices.csv")) {
+            records = stream.toList();
+        }
+        columns = new PriceColumns(records.size());
+        for (PriceRecord r : records) {
+            columns.add(r.getInstrumentGuid(), r.getTradeDate(), r.getPrice(), r.getExchange(), r.getProductType());
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public List<String> validateSingleRecord() {
+        int row = next;
+        next = row + 1 == records.size() ? 0 : row + 1;
+        return validationService.validateSingleRecord(records.get(row), row + 1);
+    }
+
+    @Benchmark
+    public List<ValidationResult> validateAll() {
+        return validationService.validateAll(records);
+    }
+
+    @Benchmark
+    public int[] validateColumns() {
+        return validationService.validateColumns(columns, 1, new DuplicateTracker());
+    }
+
+    @Benchmark
+    public int detectDuplicates() {
+        DuplicateTracker tracker = new DuplicateTracker();
+        int duplicates = 0;
+        for (int i = 0; i < records.size(); i++) {
+            if (tracker.register(records.get(i), i + 1) != -1) duplicates++;
+        }
+        return duplicates;
+    }
+}
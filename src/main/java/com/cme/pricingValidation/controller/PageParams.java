@@ -0,0 +1,64 @@
+package com.cme.pricingValidation.controller;
+
+import com.cme.pricingValidation.model.ErrorCode;
+import com.cme.pricingValidation.model.Exchange;
+import com.cme.pricingValidation.model.ProductType;
+import com.cme.pricingValidation.repository.PriceRecordFilter;
+import com.cme.pricingValidation.service.ReportService;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * Query parameters of the record listings: the batch, the cursor and size of the page, and
+ * the filters.
+ */
+public class PageParams {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private String batchId;
+    private Long after;
+    private int limit = DEFAULT_PAGE_SIZE;
+    private Exchange exchange;
+    private ProductType productType;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate from;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate to;
+    private ErrorCode errorType;
+
+    public void setBatchId(String batchId) { this.batchId = batchId; }
+    public void setAfter(Long after) { this.after = after; }
+    public void setLimit(int limit) { this.limit = limit; }
+    public void setExchange(Exchange exchange) { this.exchange = exchange; }
+    public void setProductType(ProductType productType) { this.productType = productType; }
+    public void setFrom(LocalDate from) { this.from = from; }
+    public void setTo(LocalDate to) { this.to = to; }
+    public void setErrorType(ErrorCode errorType) { this.errorType = errorType; }
+
+    String getBatchId() { return batchId; }
+    Long getAfter() { return after; }
+
+    /**
+     * The requested page size, kept between 1 and {@value #MAX_PAGE_SIZE}.
+     */
+    int pageSize() {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * @param reports gives the error masks of the batch, so a page is not preceded by a query for them
+     */
+    PriceRecordFilter toFilter(String batchId, Boolean valid, ReportService reports) {
+        return new PriceRecordFilter()
+                .setBatchId(batchId)
+                .setValid(valid)
+                .setExchange(exchange)
+                .setProductType(productType)
+                .setTradeDateFrom(from)
+                .setTradeDateTo(to)
+                .setErrorType(errorType)
+                .setErrorMasks(errorType == null || batchId == null ? null : reports.errorMasks(batchId, errorType));
+    }
+}
@@ -2,26 +2,48 @@ package com.cme.pricingValidation.controller;
 
 import com.cme.pricingValidation.entity.PriceRecordEntity;
 import com.cme.pricingValidation.model.PriceRecord;
+import com.cme.pricingValidation.model.RecordPage;
+import com.cme.pricingValidation.model.ResponseDetail;
+import com.cme.pricingValidation.model.UploadBatch;
+import com.cme.pricingValidation.model.ValidationResponse;
 import com.cme.pricingValidation.model.ValidationResult;
+import com.cme.pricingValidation.repository.PriceRecordFilter;
 import com.cme.pricingValidation.repository.PriceRecordRepository;
 import com.cme.pricingValidation.service.CSVReader;
+import com.cme.pricingValidation.service.IngestionMetrics;
+import com.cme.pricingValidation.service.IngestionService;
+import com.cme.pricingValidation.service.JsonRecordReader;
+import com.cme.pricingValidation.service.NaturalKeyIndex;
+import com.cme.pricingValidation.service.ReportService;
+import com.cme.pricingValidation.service.RuleChain;
 import com.cme.pricingValidation.service.ValidationService;
+import com.cme.pricingValidation.util.MultipartParts;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
-
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/pricing")
@@ -37,73 +59,182 @@ public class PriceController {
     private final CSVReader csvReader;
     private final ValidationService validationService;
     private final PriceRecordRepository repository;
-    public PriceController(CSVReader csvReader,ValidationService validationService,PriceRecordRepository repository){
+    private final IngestionService ingestionService;
+    private final ReportService reportService;
+    private final JsonRecordReader jsonRecordReader;
+    private final ObjectMapper objectMapper;
+    private final IngestionMetrics metrics;
+    private final NaturalKeyIndex naturalKeys;
+    private final ResponseDetail defaultDetail;
+    private final int errorSamples;
+    private final DataSize maxUploadSize;
+    public PriceController(CSVReader csvReader,ValidationService validationService,PriceRecordRepository repository,
+                           IngestionService ingestionService,ReportService reportService,
+                           JsonRecordReader jsonRecordReader,ObjectMapper objectMapper,IngestionMetrics metrics,
+                           NaturalKeyIndex naturalKeys,
+                           @Value("${pricing.response.detail:full}") String defaultDetail,
+                           @Value("${pricing.response.error-samples:5}") int errorSamples,
+                           @Value("${spring.servlet.multipart.max-request-size:512MB}") DataSize maxUploadSize){
         this.csvReader = csvReader;
         this.validationService = validationService;
         this.repository = repository;
+        this.ingestionService = ingestionService;
+        this.reportService = reportService;
+        this.jsonRecordReader = jsonRecordReader;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.naturalKeys = naturalKeys;
+        this.defaultDetail = ResponseDetail.fromCode(defaultDetail);
+        if (this.defaultDetail == null) {
+            throw new IllegalArgumentException("Unknown pricing.response.detail " + defaultDetail);
+        }
+        this.errorSamples = errorSamples;
+        this.maxUploadSize = maxUploadSize;
     }
 
+    /**
+     * Validates and stores a CSV file. With {@code delta} the file is a resend of the batch
+     * {@code batchId}, by default the last completed upload, and only its differences from
+     * that batch are validated and stored. Otherwise {@code detail} picks what the response
+     * holds besides the summary: nothing, the invalid rows or every row; streamed uploads
+     * always answer with counts only.
+     */
     @PostMapping("/validate-file")
-    public ResponseEntity<?> validateFile(@RequestParam("file") MultipartFile file){
-        logger.debug("/validate-file route hit with file",file);
+    public ResponseEntity<?> validateFile(@RequestParam("file") MultipartFile file,
+                                          @RequestParam(value = "streaming", defaultValue = "false") boolean streaming,
+                                          @RequestParam(value = "delta", defaultValue = "false") boolean delta,
+                                          @RequestParam(value = "batchId", required = false) String batchId,
+                                          @RequestParam(value = "detail", required = false) String detail){
+        logger.debug("/validate-file route hit with file {}",file.getOriginalFilename());
+        ResponseDetail level = detail(detail);
+        if(level == null){
+            return unknownDetail(detail);
+        }
         try{
+            if(delta){
+                String base = reportService.resolveBatchId(batchId);
+                if(base == null || reportService.getBatch(base) == null){
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "No batch to apply the delta to"));
+                }
+                try(Stream<PriceRecord> records = csvReader.stream(file)){
+                    return ResponseEntity.ok(Map.of("summary",ingestionService.ingestDelta(base, records)));
+                } catch (IllegalStateException e) {
+                    return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+                }
+            }
+            if(streaming){
+                try(CSVReader.ColumnReader columns = csvReader.columns(file.getInputStream(), file.getOriginalFilename())){
+                    return ResponseEntity.ok(Map.of("summary",ingestionService.ingestColumns(columns)));
+                }
+            }
+            long started = System.nanoTime();
             List<PriceRecord> records = csvReader.read(file);
+            metrics.recordStage(IngestionMetrics.Stage.PARSE, System.nanoTime() - started);
             List<ValidationResult> result = validationService.validateAll(records);
-            Map<String,Object> summary = validationService.summary(result);
+            // storing marks the rows an earlier upload already stored, so it comes before the summary
+            String storedBatchId = ingestionService.store(result);
+            Map<String,Object> summary = validationService.summary(result, errorSamples, level);
 
-            logger.debug("Clearing data");
-            repository.deleteAll();
-            int rowNumber=1;
-            for(ValidationResult r : result){
-                PriceRecord rec = r.getPriceRecord();
-                boolean isDuplicate = r.getErrors().stream().anyMatch(msg->msg.startsWith("Duplicate Record of Row"));
-                if(isDuplicate){
+            summary.put("batchId", storedBatchId);
+            metrics.recordUpload(result.size(), System.nanoTime() - started);
 
-                    logger.debug("Duplicate Detected Skipping this record");
-                    continue;
-                }
+            return ResponseEntity.ok(new ValidationResponse(summary, result, level));
 
-                PriceRecordEntity entity = new PriceRecordEntity(
-                    rec.getInstrumentGuid(),rec.getTradeDate(),rec.getPrice(),rec.getExchange().toUpperCase(),rec.getProductType().toUpperCase(),
-                        rowNumber++,r.getIfValid(),String.join(",",r.getErrors())
-                );
-                repository.save(entity);
+        } catch (IOException | UncheckedIOException e) {
+            logger.warn("Could not process file {}", file.getOriginalFilename(), e);
+            return ResponseEntity.badRequest().body(Map.of("error", "Could not process file", "message", e.getMessage()));
+        }
+    }
+    /**
+     * Like {@link #validateFile} with {@code streaming}, reading the multipart body as it
+     * arrives: the "file" part is parsed, validated and stored chunk by chunk while the
+     * client is still sending it, instead of once the whole upload is buffered. The file
+     * may be gzip or zstd compressed. Options other than the file are ignored.
+     */
+    @PostMapping(value = "/validate-file/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> validateFileStream(HttpServletRequest request){
+        // request parameters are not read, as the container would parse the whole body for them
+        String boundary = MultipartParts.boundary(request.getContentType());
+        if(boundary == null){
+            return ResponseEntity.badRequest().body(Map.of("error", "Multipart boundary missing"));
+        }
+        if(request.getContentLengthLong() > maxUploadSize.toBytes()){
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(
+                    Map.of("error", "Upload larger than " + maxUploadSize));
+        }
+        try(MultipartParts parts = new MultipartParts(request.getInputStream(), boundary)){
+            for(MultipartParts.Part part = parts.next(); part != null; part = parts.next()){
+                if(!"file".equals(part.getName())) continue;
+                logger.debug("/validate-file/stream route hit with file {}",part.getFileName());
+                try(CSVReader.ColumnReader columns = csvReader.columns(part.getContent(), part.getFileName())){
+                    return ResponseEntity.ok(Map.of("summary",ingestionService.ingestColumns(columns)));
+                }
             }
-
-
-            return ResponseEntity.ok(Map.of("summary",summary,"result",result));
-
-        } catch (IOException e) {
-            e.printStackTrace();
+            return ResponseEntity.badRequest().body(Map.of("error", "Required part 'file' is not present"));
+        } catch (IOException | UncheckedIOException e) {
+            logger.warn("Could not process streamed upload: {}", e.getMessage());
             return ResponseEntity.badRequest().body(Map.of("error", "Could not process file", "message", e.getMessage()));
         }
     }
+
+    /**
+     * Validates and stores the records, answering like {@link #validateFile} with the given
+     * {@code detail}.
+     */
     @PostMapping("/validate-json")
-    public ResponseEntity<?> validateJson(@RequestBody List<PriceRecord> records){
+    public ResponseEntity<?> validateJson(@RequestBody List<PriceRecord> records,
+                                          @RequestParam(value = "detail", required = false) String detail){
         logger.info("Json data is being Entered ");
+        ResponseDetail level = detail(detail);
+        if(level == null){
+            return unknownDetail(detail);
+        }
+        // the body is parsed before this method is called
+        long started = System.nanoTime();
         List<ValidationResult> result = validationService.validateAll(records);
-        Map<String,Object> summary = validationService.summary(result);
+        String batchId = ingestionService.store(result);
+        Map<String,Object> summary = validationService.summary(result, errorSamples, level);
 
-        logger.debug("Clearing Previous Data");
-        repository.deleteAll();
-        int row=1;
-        for(ValidationResult r : result){
-            PriceRecord rec = r.getPriceRecord();
-            boolean isDuplicate = r.getErrors().stream().anyMatch(msg->msg.startsWith("Duplicate Record of Row"));
-            if(isDuplicate){
+        summary.put("batchId", batchId);
+        metrics.recordUpload(result.size(), System.nanoTime() - started);
+        return ResponseEntity.ok(new ValidationResponse(summary, result, level));
+    }
 
-                logger.debug("Duplicate Detected Skipping this record");
-                continue;
+    /**
+     * Newline delimited JSON variant of {@link #validateJson}: one record per input line is
+     * validated and stored in chunks as it is read, and one result per line is written back
+     * as each chunk is stored, followed by a summary line. A malformed line ends the
+     * response with an error line; the chunks before it stay stored.
+     */
+    @PostMapping(value = "/validate-json", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> validateNdjson(InputStream body){
+        logger.info("Json data is being streamed");
+        StreamingResponseBody response = out -> {
+            JsonGenerator generator = objectMapper.createGenerator(out);
+            // lines are ended explicitly, no space between the root values
+            generator.setRootValueSeparator(null);
+            ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            try (Stream<PriceRecord> records = jsonRecordReader.stream(body)) {
+                Map<String,Object> summary = ingestionService.ingest(records, results -> {
+                    try {
+                        for (ValidationResult r : results) {
+                            writer.writeValue(generator, r);
+                            generator.writeRaw('\n');
+                        }
+                        generator.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                writer.writeValue(generator, Map.of("summary", summary));
+            } catch (UncheckedIOException e) {
+                logger.warn("Could not process json records: {}", e.getMessage());
+                writer.writeValue(generator, Map.of("error", "Could not process records", "message", e.getCause().getMessage()));
             }
-
-            PriceRecordEntity entity = new PriceRecordEntity(
-                    rec.getInstrumentGuid(),rec.getTradeDate(),rec.getPrice(),rec.getExchange().toUpperCase(),rec.getProductType().toUpperCase(),
-                    row++,r.getIfValid(),String.join(",",r.getErrors())
-            );
-            logger.info("Record Saved ");
-            repository.save(entity);
-        }
-        return ResponseEntity.ok(Map.of("summary",summary,"result",result));
+            generator.writeRaw('\n');
+            generator.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(response);
     }
 
     @PostMapping("/validate-record")
@@ -112,165 +243,183 @@ public class PriceController {
         return ResponseEntity.ok(results.get(0));
     }
     @GetMapping("/all")
-    public List<PriceRecordEntity> getAllRecords() {
+    public RecordPage getAllRecords(@ModelAttribute PageParams page) {
         logger.info("Fetching All Records");
-        return repository.findAll();
+        return findPage(null, page);
+    }
+    /**
+     * The retained uploads, newest first. Listings, summary and report read the last
+     * completed upload unless given a {@code batchId}.
+     */
+    @GetMapping("/batches")
+    public List<UploadBatch> getBatches() {
+        return reportService.batches();
     }
     @GetMapping("/{id}")
     public ResponseEntity<?> getRecordsById(@PathVariable Long id){
         return repository.findById(id).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
     }
+    /**
+     * Streams the CSV validation report, with every record instead of only the invalid
+     * ones when {@code full} is set. The report is gzip compressed for clients that accept it.
+     */
     @GetMapping("/export-report")
-    public ResponseEntity<byte[]> exportValidationReport() {
-
-
-        List<PriceRecordEntity> allRecords = repository.findAll();
-        List<PriceRecordEntity> invalidRecords = repository.findByValidFalse();
-
-        long total = allRecords.size();
-        long valid = allRecords.stream().filter(PriceRecordEntity::isValid).count();
-        long invalid = total - valid;
-        double percentAcc = total == 0 ? 0.0 : ((double) valid / total) * 100d;
-
-        String percentAccStr = String.format("%.2f", percentAcc);
-
-        List<Integer> invalidRows = new ArrayList<>();
-        for (PriceRecordEntity r : invalidRecords) {
-            if (r.getRowNumber() != null) {
-                invalidRows.add(r.getRowNumber());
-            }
-        }
-
-        StringBuilder sb = new StringBuilder();
-
-
-        sb.append("Summary\n");
-        sb.append("Total Records,").append(total).append("\n");
-        sb.append("Valid Records,").append(valid).append("\n");
-        sb.append("Invalid Records,").append(invalid).append("\n");
-        sb.append("Valid Percentage, ").append(percentAccStr).append("\n");
-
-        sb.append("Invalid Row Numbers,");
-        if (invalidRows.isEmpty()) {
-            sb.append("None\n");
-        } else {
-            sb.append(invalidRows.stream()
-                            .map(String::valueOf)
-                            .collect(java.util.stream.Collectors.joining(" ")))
-                    .append("\n");
-        }
-
-        sb.append("\n");
-        sb.append("Invalid Records Detail\n");
-        sb.append("rowNumber,instrumentGuid,tradeDate,price,exchange,productType,errors\n");
-
-        for (PriceRecordEntity e : invalidRecords) {
-            sb.append(e.getRowNumber() == null ? "" : e.getRowNumber()).append(",");
-            sb.append(nullSafe(e.getInstrumentGuid())).append(",");
-            sb.append(nullSafe(e.getTradeDate())).append(",");
-            sb.append(nullSafe(e.getPrice())).append(",");
-            sb.append(nullSafe(e.getExchange())).append(",");
-            sb.append(nullSafe(e.getProductType())).append(",");
-
-            String errors = e.getErrors();
-            if (errors != null) {
-                String escaped = errors.replace("\"", "\"\"");
-                sb.append("\"").append(escaped).append("\"");
+    public ResponseEntity<StreamingResponseBody> exportValidationReport(
+            @RequestParam(value = "batchId", required = false) String batchId,
+            @RequestParam(value = "full", defaultValue = "false") boolean full,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean gzip = acceptsGzip(acceptEncoding);
+        String batch = reportService.resolveBatchId(batchId);
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 1 << 16);
+                reportService.writeReport(compressed, batch, full);
+                compressed.finish();
             } else {
-                sb.append("");
+                reportService.writeReport(out, batch, full);
             }
-            sb.append("\n");
-        }
+        };
 
-        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
-
-        return ResponseEntity.ok()
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"pricing-validation-report.csv\"")
-                .contentType(MediaType.parseMediaType("text/csv"))
-                .body(bytes);
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.parseMediaType("text/csv"));
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
     }
 
 
+    /**
+     * Updates the given fields of a record and validates it again. An edit giving the record
+     * the natural key of another record of its batch is refused. A {@code version} in the
+     * body must match the stored one, so an edit based on a stale read is refused too.
+     */
     @PutMapping("/{id}")
     public ResponseEntity<?> updateRecordsById(@PathVariable Long id, @RequestBody PriceRecordEntity p){
         return repository.findById(id).map(val ->{
-            if(p.getInstrumentGuid()!=null) val.setInstrumentGuid(p.getInstrumentGuid());
-            if(p.getPrice()!=null) val.setPrice(p.getPrice());
-            if(p.getExchange()!=null) val.setExchange(p.getExchange());
-            if(p.getProductType()!=null) val.setProductType(p.getProductType());
-            if(p.getTradeDate()!=null) val.setTradeDate(p.getTradeDate());
-
-            List<String> newErrors = validationService.validateRecord(val);
-
-            if(canBeDuplicate(val)){
-                return ResponseEntity.badRequest().body(
-                        Map.of("error","This action will create a duplicate record")
+            if(p.getVersion()!=null && !p.getVersion().equals(val.getVersion())){
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                        Map.of("error","The record was changed by another request, reload it and retry")
                 );
             }
+            NaturalKeyIndex.Key oldKey = NaturalKeyIndex.Key.of(val);
+            // the rules forget the record while it is checked, so it is not held against its own old price
+            PriceRecordEntity learned = validationService.removed(val);
+            try {
+                if(p.getInstrumentGuid()!=null) val.setInstrumentGuid(p.getInstrumentGuid());
+                if(p.getPrice()!=null) val.setPrice(p.getPrice());
+                if(p.getExchange()!=null) val.setExchange(p.getExchange());
+                if(p.getProductType()!=null) val.setProductType(p.getProductType());
+                if(p.getTradeDate()!=null) val.setTradeDate(p.getTradeDate());
+
+                int newErrors = validationService.validateRecord(val);
+
+                // the new key is taken before saving, so of two edits racing to the same key one loses
+                NaturalKeyIndex.Key newKey = NaturalKeyIndex.Key.of(val);
+                boolean keyChanged = !newKey.equals(oldKey);
+                if(keyChanged && !naturalKeys.claim(val.getBatchId(), newKey, id)){
+                    return ResponseEntity.badRequest().body(
+                            Map.of("error","This action will create a duplicate record")
+                    );
+                }
 
-            val.setValid(newErrors.isEmpty());
-            val.setErrors(newErrors.isEmpty()?null:String.join(",",newErrors));
+                val.setValid(newErrors == 0);
+                val.setErrorCodes(newErrors);
 
-            repository.save(val);
-            return ResponseEntity.ok(val);
+                reportService.recordErrorMasks(val.getBatchId(), List.of(val));
+                PriceRecordEntity saved;
+                try {
+                    saved = repository.save(val);
+                } catch (RuntimeException e) {
+                    if(keyChanged) naturalKeys.release(val.getBatchId(), newKey, id);
+                    throw e;
+                }
+                if(keyChanged) naturalKeys.release(val.getBatchId(), oldKey, id);
+                learned = saved;
+                return ResponseEntity.ok(saved);
+            } finally {
+                validationService.learn(learned);
+            }
 
         }).orElse(ResponseEntity.notFound().build());
     }
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteRecord(@PathVariable Long id){
         logger.info("User Deleted record with ID",id);
-        if(!repository.existsById(id)){
+        PriceRecordEntity record = repository.findById(id).orElse(null);
+        if(record == null){
             logger.debug("Could not find the Record");
             return ResponseEntity.status(HttpStatusCode.valueOf(404)).body(Map.of("errors","Not Found any Records"));
         }else{
-            logger.warn("User Deleted Record: ",repository.findById(id));
-            repository.deleteById(id);
+            logger.warn("User Deleted Record: ",record);
+            repository.delete(record);
+            validationService.removed(record);
+            naturalKeys.release(record.getBatchId(), NaturalKeyIndex.Key.of(record), id);
             return ResponseEntity.ok(Map.of("message","Deleted record !"));
         }
     }
 
     @GetMapping("/invalid")
-    public List<PriceRecordEntity> getInvalidRecords(){
-        return repository.findByValidFalse();
+    public RecordPage getInvalidRecords(@ModelAttribute PageParams page){
+        return findPage(false, page);
     }
     @GetMapping("/valid")
-    public List<PriceRecordEntity> getValidRecords(){
-        return repository.findByValidTrue();
+    public RecordPage getValidRecords(@ModelAttribute PageParams page){
+        return findPage(true, page);
     }
 
+    /**
+     * Counts of the stored records of a batch. Unless {@code detail} is summary, the errors of
+     * every invalid record are listed too.
+     */
     @GetMapping("/summary")
-    public Map<String,Object> getSummary(){
-        List<PriceRecordEntity> allRecords = repository.findAll();
-        List<PriceRecordEntity> p = repository.findByValidFalse();
-        List<String> allErrors = new ArrayList<>();
-        for(PriceRecordEntity r:p){
-            allErrors.add(r.getErrors());
+    public ResponseEntity<?> getSummary(@RequestParam(value = "batchId", required = false) String batchId,
+                                        @RequestParam(value = "detail", required = false) String detail){
+        ResponseDetail level = detail(detail);
+        if(level == null){
+            return unknownDetail(detail);
         }
+        return ResponseEntity.ok(reportService.storedSummary(reportService.resolveBatchId(batchId),
+                level != ResponseDetail.SUMMARY));
+    }
 
-        long total = allRecords.size();
-        long valid = allRecords.stream().filter(PriceRecordEntity::isValid).count();
-        long invalid = total-valid;
+    /**
+     * The validation rules in the order they run, with their invocation and failure counts
+     * and the time spent in each since startup.
+     */
+    @GetMapping("/rules")
+    public List<RuleChain.RuleStats> getRuleStats(){
+        return validationService.ruleStats();
+    }
 
-        List<Integer> invalidRows = allRecords.stream().filter(x->!x.isValid()).map(PriceRecordEntity::getRowNumber).toList();
+    private RecordPage findPage(Boolean valid, PageParams page) {
+        PriceRecordFilter filter = page.toFilter(reportService.resolveBatchId(page.getBatchId()), valid, reportService);
+        return RecordPage.of(repository.findPage(filter, page.getAfter(), page.pageSize() + 1), page.pageSize());
+    }
 
-        return Map.of(
-                "total",total,"valid",valid,"invalid",invalid,"invalidRows",invalidRows
-        ,"errors",allErrors);
+    // the configured level when none is asked for, null when the value is unknown
+    private ResponseDetail detail(String detail) {
+        return detail == null ? defaultDetail : ResponseDetail.fromCode(detail);
     }
 
-    private boolean canBeDuplicate(PriceRecordEntity e){
-        List<PriceRecordEntity> same = repository.findByInstrumentGuidAndTradeDateAndPriceAndExchangeAndProductType(
-                e.getInstrumentGuid(),
-                e.getTradeDate(),
-                e.getPrice(),
-                e.getExchange(),
-                e.getProductType()
-        );
-        return same.stream().anyMatch(k -> !k.getId().equals(e.getId()));
+    private ResponseEntity<?> unknownDetail(String detail) {
+        return ResponseEntity.badRequest().body(
+                Map.of("error", "Unknown detail '" + detail + "', expected summary, errors or full"));
     }
 
-    private String nullSafe(String value) {
-        return value != null ? value : "";
+    private boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (!name.equalsIgnoreCase("gzip") && !name.equals("*")) continue;
+            // "gzip;q=0" means the client refuses gzip
+            boolean refused = parts.length > 1 && parts[1].trim().matches("q=0(\\.0*)?");
+            if (!refused) return true;
+        }
+        return false;
     }
 
 }
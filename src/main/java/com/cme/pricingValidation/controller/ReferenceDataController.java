@@ -0,0 +1,48 @@
+package com.cme.pricingValidation.controller;
+
+import com.cme.pricingValidation.service.ReferenceDataIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * State of the instrument master records are checked against, and reloading it on demand
+ * instead of waiting for the next scheduled refresh.
+ */
+@RestController
+@RequestMapping("/api/pricing/reference-data")
+@CrossOrigin(
+        origins = {"http://localhost:3000", "http://localhost:5173", "http://127.0.0.1:3000","https://price-validation-cme-frontend.vercel.app"},
+        methods = {RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.DELETE, RequestMethod.OPTIONS},
+        allowedHeaders = "*",
+        allowCredentials = "true"
+)
+public class ReferenceDataController {
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceDataController.class);
+
+    private final ReferenceDataIndex referenceData;
+
+    public ReferenceDataController(ReferenceDataIndex referenceData) {
+        this.referenceData = referenceData;
+    }
+
+    @GetMapping
+    public ReferenceDataIndex.Snapshot status() {
+        return referenceData.getSnapshot();
+    }
+
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh() {
+        try {
+            return ResponseEntity.ok(referenceData.refresh(true));
+        } catch (RuntimeException e) {
+            logger.error("Reference data refresh failed", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Could not load reference data", "message", String.valueOf(e.getMessage())));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.cme.pricingValidation.controller;
+
+import com.cme.pricingValidation.model.RecordPage;
+import com.cme.pricingValidation.model.ValidationJob;
+import com.cme.pricingValidation.repository.PriceRecordRepository;
+import com.cme.pricingValidation.service.ReportService;
+import com.cme.pricingValidation.service.ValidationJobService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Background validation of uploads: a job is submitted with the file, then polled for
+ * progress, cancelled, and read page by page.
+ */
+@RestController
+@RequestMapping("/api/pricing/jobs")
+@CrossOrigin(
+        origins = {"http://localhost:3000", "http://localhost:5173", "http://127.0.0.1:3000","https://price-validation-cme-frontend.vercel.app"},
+        methods = {RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.DELETE, RequestMethod.OPTIONS},
+        allowedHeaders = "*",
+        allowCredentials = "true"
+)
+public class ValidationJobController {
+    private static final Logger logger = LoggerFactory.getLogger(ValidationJobController.class);
+
+    private final ValidationJobService jobService;
+    private final PriceRecordRepository repository;
+    private final ReportService reportService;
+
+    public ValidationJobController(ValidationJobService jobService, PriceRecordRepository repository,
+                                   ReportService reportService) {
+        this.jobService = jobService;
+        this.repository = repository;
+        this.reportService = reportService;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> submit(@RequestParam("file") MultipartFile file) {
+        logger.debug("Validation job submitted with file {}", file.getOriginalFilename());
+        try {
+            ValidationJob job = jobService.submit(file);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", "Too many validation jobs queued, retry later"));
+        } catch (IOException e) {
+            logger.error("Could not store upload {}", file.getOriginalFilename(), e);
+            return ResponseEntity.badRequest().body(Map.of("error", "Could not process file", "message", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> get(@PathVariable String id) {
+        ValidationJob job = jobService.get(id);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> cancel(@PathVariable String id) {
+        ValidationJob job = jobService.cancel(id);
+        return job != null ? ResponseEntity.accepted().body(job) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * The stored records of the job, paged and filtered like {@code /api/pricing/all}.
+     * Records of a running job can be read as its chunks are stored.
+     */
+    @GetMapping("/{id}/results")
+    public ResponseEntity<?> results(@PathVariable String id, @ModelAttribute PageParams page) {
+        ValidationJob job = jobService.get(id);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (job.getStartedAt() == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "Job has not started"));
+        }
+        if (reportService.getBatch(job.getId()) == null) {
+            return ResponseEntity.status(HttpStatus.GONE).body(Map.of("error", "Job results were evicted"));
+        }
+        // the job stores its records in the batch with its id
+        return ResponseEntity.ok(RecordPage.of(
+                repository.findPage(page.toFilter(job.getId(), null, reportService), page.getAfter(), page.pageSize() + 1), page.pageSize()));
+    }
+}
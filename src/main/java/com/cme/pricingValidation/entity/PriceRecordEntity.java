@@ -1,30 +1,90 @@
 package com.cme.pricingValidation.entity;
 
+import com.cme.pricingValidation.model.ErrorCode;
+import com.cme.pricingValidation.model.Exchange;
+import com.cme.pricingValidation.model.PriceFields;
+import com.cme.pricingValidation.model.ProductType;
+import com.cme.pricingValidation.service.FieldParser;
+import com.cme.pricingValidation.service.ParsedRecord;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * A stored price record. Fields are kept in typed columns; a value that cannot be parsed
+ * (only possible on invalid records) is kept as text in the matching raw column instead.
+ * The getters and setters exchange the fields as text, like the upload model.
+ */
 @Entity
-@Table(name = "price-records")
-public class PriceRecordEntity {
+@Table(name = "price-records", indexes = {
+        // serves the counts and the keyset pages of a batch, which are read in id order
+        @Index(name = "idx_price_records_batch", columnList = "batch_id, valid, id")
+})
+public class PriceRecordEntity implements PriceFields {
+
+    private static final int RAW_LENGTH = 255;
 
+    // ids come from a pooled sequence rather than IDENTITY so Hibernate can batch the inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "price_record_seq")
+    @SequenceGenerator(name = "price_record_seq", sequenceName = "price_record_seq", allocationSize = 500)
     private long id;
 
-    private String instrumentGuid;
-    private String tradeDate;
-    private String price;
-    private String exchange;
-    private String productType;
+    // optimistic lock, concurrent edits of a record fail instead of overwriting each other
+    @Version
+    private Long version;
+
+    // the upload the record came from
+    @Column(length = 36)
+    private String batchId;
+
+    private Long instrumentGuid;
+    private LocalDate tradeDate;
+    @Column(precision = 18, scale = ParsedRecord.PRICE_SCALE)
+    private BigDecimal price;
+    @Enumerated(EnumType.ORDINAL)
+    private Exchange exchange;
+    @Enumerated(EnumType.ORDINAL)
+    private ProductType productType;
+
+    @Column(length = RAW_LENGTH)
+    private String rawInstrumentGuid;
+    @Column(length = RAW_LENGTH)
+    private String rawTradeDate;
+    @Column(length = RAW_LENGTH)
+    private String rawPrice;
+    @Column(length = RAW_LENGTH)
+    private String rawExchange;
+    @Column(length = RAW_LENGTH)
+    private String rawProductType;
+
     private Integer rowNumber;
 
     private boolean valid;
 
-    @Column(length = 500)
-    private String errors;
+    // bitmask of ErrorCode bits, the messages are rendered on read
+    private int errorCodes;
 
     public PriceRecordEntity(){}
     public PriceRecordEntity(String instrumentGuid, String tradeDate, String price,
-                             String exchange, String productType,Integer rowNumber, boolean valid, String errors) {
+                             String exchange, String productType,Integer rowNumber, boolean valid, int errorCodes) {
+        setInstrumentGuid(instrumentGuid);
+        setTradeDate(tradeDate);
+        setPrice(price);
+        setExchange(exchange);
+        setProductType(productType);
+        this.rowNumber = rowNumber;
+        this.valid = valid;
+        this.errorCodes = errorCodes;
+    }
+
+    /**
+     * A record whose fields are all parsed already.
+     */
+    public PriceRecordEntity(long instrumentGuid, LocalDate tradeDate, BigDecimal price,
+                             Exchange exchange, ProductType productType, Integer rowNumber, boolean valid, int errorCodes) {
         this.instrumentGuid = instrumentGuid;
         this.tradeDate = tradeDate;
         this.price = price;
@@ -32,24 +92,66 @@ public class PriceRecordEntity {
         this.productType = productType;
         this.rowNumber = rowNumber;
         this.valid = valid;
-        this.errors = errors;
+        this.errorCodes = errorCodes;
     }
     public Long getId() { return id; }
 
-    public String getInstrumentGuid() { return instrumentGuid; }
-    public void setInstrumentGuid(String instrumentGuid) { this.instrumentGuid = instrumentGuid; }
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
 
-    public String getTradeDate() { return tradeDate; }
-    public void setTradeDate(String tradeDate) { this.tradeDate = tradeDate; }
+    public String getBatchId() { return batchId; }
+    public void setBatchId(String batchId) { this.batchId = batchId; }
 
-    public String getPrice() { return price; }
-    public void setPrice(String price) { this.price = price; }
+    public String getInstrumentGuid() { return instrumentGuid != null ? instrumentGuid.toString() : rawInstrumentGuid; }
+    public void setInstrumentGuid(String value) {
+        ParsedRecord parsed = new ParsedRecord();
+        FieldParser.parseGuid(value, parsed);
+        boolean ok = parsed.getGuidStatus() == ParsedRecord.Status.OK;
+        this.instrumentGuid = ok ? parsed.getGuid() : null;
+        this.rawInstrumentGuid = ok ? null : raw(value);
+    }
 
-    public String getExchange() { return exchange; }
-    public void setExchange(String exchange) { this.exchange = exchange; }
+    public String getTradeDate() { return tradeDate != null ? tradeDate.toString() : rawTradeDate; }
+    public void setTradeDate(String value) {
+        ParsedRecord parsed = new ParsedRecord();
+        FieldParser.parseTradeDate(value, parsed);
+        boolean ok = parsed.getTradeDateStatus() == ParsedRecord.Status.OK;
+        this.tradeDate = ok ? LocalDate.ofEpochDay(parsed.getTradeDate()) : null;
+        this.rawTradeDate = ok ? null : raw(value);
+    }
 
-    public String getProductType() { return productType; }
-    public void setProductType(String productType) { this.productType = productType; }
+    public String getPrice() { return price != null ? price.toPlainString() : rawPrice; }
+    public void setPrice(String value) {
+        ParsedRecord parsed = new ParsedRecord();
+        FieldParser.parsePrice(value, parsed);
+        boolean ok = parsed.getPriceStatus() == ParsedRecord.Status.OK && parsed.getPriceScale() <= ParsedRecord.PRICE_SCALE;
+        this.price = ok ? BigDecimal.valueOf(parsed.getScaledPrice(), ParsedRecord.PRICE_SCALE) : null;
+        this.rawPrice = ok ? null : raw(value);
+    }
+
+    public String getExchange() { return exchange != null ? exchange.name() : rawExchange; }
+    public void setExchange(String value) {
+        this.exchange = Exchange.fromCode(value);
+        this.rawExchange = exchange != null ? null : raw(value);
+    }
+
+    public String getProductType() { return productType != null ? productType.name() : rawProductType; }
+    public void setProductType(String value) {
+        this.productType = ProductType.fromCode(value);
+        this.rawProductType = productType != null ? null : raw(value);
+    }
+
+    // typed values, null when the field could not be parsed
+    @JsonIgnore
+    public Long getInstrumentGuidValue() { return instrumentGuid; }
+    @JsonIgnore
+    public LocalDate getTradeDateValue() { return tradeDate; }
+    @JsonIgnore
+    public BigDecimal getPriceValue() { return price; }
+    @JsonIgnore
+    public Exchange getExchangeValue() { return exchange; }
+    @JsonIgnore
+    public ProductType getProductTypeValue() { return productType; }
 
     public Integer getRowNumber(){return rowNumber;}
     public void setRowNumber(Integer rowNumber){this.rowNumber = rowNumber;}
@@ -57,7 +159,16 @@ public class PriceRecordEntity {
     public boolean isValid() { return valid; }
     public void setValid(boolean valid) { this.valid = valid; }
 
-    public String getErrors() { return errors; }
-    public void setErrors(String errors) { this.errors = errors; }
+    public int getErrorCodes() { return errorCodes; }
+    public void setErrorCodes(int errorCodes) { this.errorCodes = errorCodes; }
+
+    public String getErrors() {
+        return errorCodes == 0 ? null
+                : String.join(",", ErrorCode.render(errorCodes, this, rowNumber == null ? 0 : rowNumber, 0));
+    }
+
+    private static String raw(String value) {
+        return value == null || value.length() <= RAW_LENGTH ? value : value.substring(0, RAW_LENGTH);
+    }
 
 }
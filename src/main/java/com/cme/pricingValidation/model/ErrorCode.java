@@ -0,0 +1,88 @@
+package com.cme.pricingValidation.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Validation failures, stored as a bitmask of {@link #bit()} values. Messages are only
+ * rendered when a result is serialized. The ordinal is persisted through the bitmask, so
+ * new codes must be added at the end. Messages are rendered in declaration order.
+ */
+public enum ErrorCode {
+    MISSING_GUID((rec, row, arg) -> "Missing instrument_guid at row " + row),
+    MISSING_TRADE_DATE((rec, row, arg) -> "Missing trade_date at row " + row),
+    MISSING_EXCHANGE((rec, row, arg) -> "Missing exchange at row " + row),
+    MISSING_PRODUCT_TYPE((rec, row, arg) -> "Missing product_type at row " + row),
+    MISSING_PRICE((rec, row, arg) -> "Missing price at row " + row),
+    INVALID_PRICE_FORMAT((rec, row, arg) -> "Invalid price format at row " + row + ": '" + rec.getPrice() + "'"),
+    NON_POSITIVE_PRICE((rec, row, arg) -> "Price must be positive at row " + row + ": " + rec.getPrice()),
+    PRICE_PRECISION((rec, row, arg) -> "Price must be rounded to 3 decimal places eg: 123.333 : " + rec.getPrice()),
+    INVALID_GUID((rec, row, arg) -> "Invalid instrument_guid format at row " + row +
+            " (must be numeric): '" + rec.getInstrumentGuid() + "'"),
+    INVALID_TRADE_DATE((rec, row, arg) -> "Invalid trade_date format at row " + row +
+            " (expected yyyy-MM-dd): '" + rec.getTradeDate() + "'"),
+    FUTURE_TRADE_DATE((rec, row, arg) -> "Trade date cannot be in future at row " + row + ": " + rec.getTradeDate()),
+    INVALID_EXCHANGE((rec, row, arg) -> "Invalid exchange at row " + row +
+            ": '" + rec.getExchange() + "'. Must be one of: " + Arrays.toString(Exchange.values())),
+    INVALID_PRODUCT_TYPE((rec, row, arg) -> "Invalid product_type at row " + row +
+            ": '" + rec.getProductType() + "'. Must be one of: " + Arrays.toString(ProductType.values())),
+    DUPLICATE((rec, row, arg) -> "Duplicate Record of Row " + arg + " at " + row),
+    UNKNOWN_INSTRUMENT((rec, row, arg) -> "Unknown instrument_guid at row " + row + ": '" + rec.getInstrumentGuid() + "'"),
+    EXCHANGE_MISMATCH((rec, row, arg) -> "Instrument " + rec.getInstrumentGuid() + " is not listed on exchange '"
+            + rec.getExchange() + "' at row " + row),
+    PRODUCT_TYPE_MISMATCH((rec, row, arg) -> "Instrument " + rec.getInstrumentGuid() + " is not a '"
+            + rec.getProductType() + "' product at row " + row),
+    PRICE_OUTLIER((rec, row, arg) -> "Price " + rec.getPrice() + " at row " + row
+            + " is far outside the usual range of instrument " + rec.getInstrumentGuid()),
+    PRICE_JUMP((rec, row, arg) -> "Price " + rec.getPrice() + " at row " + row
+            + " jumps too far from the last price of instrument " + rec.getInstrumentGuid()),
+    ALREADY_STORED((rec, row, arg) -> "Record at row " + row + " was already stored by an earlier upload");
+
+    @FunctionalInterface
+    private interface Renderer {
+        String render(PriceFields record, int row, int arg);
+    }
+
+    private final Renderer renderer;
+
+    ErrorCode(Renderer renderer) {
+        this.renderer = renderer;
+    }
+
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    public boolean isSet(int mask) {
+        return (mask & bit()) != 0;
+    }
+
+    /**
+     * @param arg the extra value some messages need, e.g. the original row of a duplicate
+     */
+    public String render(PriceFields record, int row, int arg) {
+        return renderer.render(record, row, arg);
+    }
+
+    public static List<String> render(int mask, PriceFields record, int row, int arg) {
+        List<String> messages = new ArrayList<>(Integer.bitCount(mask));
+        for (ErrorCode code : values()) {
+            if (code.isSet(mask)) {
+                messages.add(code.render(record, row, arg));
+            }
+        }
+        return messages;
+    }
+
+    public static EnumSet<ErrorCode> of(int mask) {
+        EnumSet<ErrorCode> codes = EnumSet.noneOf(ErrorCode.class);
+        for (ErrorCode code : values()) {
+            if (code.isSet(mask)) {
+                codes.add(code);
+            }
+        }
+        return codes;
+    }
+}
@@ -0,0 +1,75 @@
+package com.cme.pricingValidation.model;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The failures of an upload by {@link ErrorCode}: how many rows have each, and the
+ * messages of the first few of them as samples, so its size does not grow with the file.
+ */
+public class ErrorSummary {
+
+    private static final ErrorCode[] CODES = ErrorCode.values();
+
+    public static class Entry {
+        private long count;
+        private final List<Sample> samples = new ArrayList<>();
+
+        public long getCount() { return count; }
+        public List<Sample> getSamples() { return samples; }
+    }
+
+    public static class Sample {
+        private final int row;
+        private final String message;
+
+        Sample(int row, String message) {
+            this.row = row;
+            this.message = message;
+        }
+
+        public int getRow() { return row; }
+        public String getMessage() { return message; }
+    }
+
+    private final int maxSamples;
+    private final Map<ErrorCode,Entry> byCode = new EnumMap<>(ErrorCode.class);
+
+    /**
+     * @param maxSamples rows kept as samples for each code
+     */
+    public ErrorSummary(int maxSamples) {
+        this.maxSamples = maxSamples;
+    }
+
+    /**
+     * Counts the failures of one row, rendering a message only while samples are missing.
+     * @param arg the extra value some messages need, see {@link ErrorCode#render}
+     */
+    public void add(int mask, PriceFields record, int row, int arg) {
+        for (; mask != 0; mask &= mask - 1) {
+            ErrorCode code = CODES[Integer.numberOfTrailingZeros(mask)];
+            Entry entry = byCode.computeIfAbsent(code, c -> new Entry());
+            entry.count++;
+            if (entry.samples.size() < maxSamples) {
+                entry.samples.add(new Sample(row, code.render(record, row, arg)));
+            }
+        }
+    }
+
+    public void add(ValidationResult result) {
+        add(result.getErrorMask(), result.getPriceRecord(), result.getRowNumber(), result.getDuplicateOf());
+    }
+
+    /**
+     * @return the entry of each code found, in declaration order
+     */
+    @JsonValue
+    public Map<ErrorCode,Entry> getByCode() {
+        return byCode;
+    }
+}
@@ -0,0 +1,20 @@
+package com.cme.pricingValidation.model;
+
+/**
+ * Exchanges a price can be quoted on. Stored by ordinal, so new values must be added at the end.
+ */
+public enum Exchange {
+    CME, NYMEX, CBOT, COMEX;
+
+    /**
+     * @return the exchange matching the value ignoring case and surrounding whitespace, or null
+     */
+    public static Exchange fromCode(String value) {
+        if (value == null) return null;
+        String code = value.trim();
+        for (Exchange exchange : values()) {
+            if (exchange.name().equalsIgnoreCase(code)) return exchange;
+        }
+        return null;
+    }
+}
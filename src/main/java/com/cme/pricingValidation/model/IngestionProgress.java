@@ -0,0 +1,25 @@
+package com.cme.pricingValidation.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Row counters of a running ingestion, updated by the ingesting thread and readable from
+ * any other. Also carries the request to stop, which the ingestion checks between chunks.
+ */
+public class IngestionProgress {
+    private final AtomicLong parsed = new AtomicLong();
+    private final AtomicLong validated = new AtomicLong();
+    private final AtomicLong persisted = new AtomicLong();
+    private volatile boolean cancelled;
+
+    public long getParsed() { return parsed.get(); }
+    public long getValidated() { return validated.get(); }
+    public long getPersisted() { return persisted.get(); }
+
+    public void addParsed(long rows) { parsed.addAndGet(rows); }
+    public void addValidated(long rows) { validated.addAndGet(rows); }
+    public void addPersisted(long rows) { persisted.addAndGet(rows); }
+
+    public boolean isCancelled() { return cancelled; }
+    public void cancel() { cancelled = true; }
+}
@@ -0,0 +1,12 @@
+package com.cme.pricingValidation.model;
+
+/**
+ * The raw fields of a price record, shared by the upload model and the stored entity.
+ */
+public interface PriceFields {
+    String getInstrumentGuid();
+    String getTradeDate();
+    String getPrice();
+    String getExchange();
+    String getProductType();
+}
@@ -1,6 +1,6 @@
 package com.cme.pricingValidation.model;
 
-public class PriceRecord {
+public class PriceRecord implements PriceFields {
     private String instrumentGuid;
     private String tradeDate;
     private String price;
@@ -0,0 +1,56 @@
+package com.cme.pricingValidation.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Read only copy of a stored price record, selected column by column so listing records
+ * does not load managed entities. Serializes like {@link com.cme.pricingValidation.entity.PriceRecordEntity}.
+ */
+public class PriceRecordView implements PriceFields {
+    private final long id;
+    private final Integer rowNumber;
+    private final String instrumentGuid;
+    private final String tradeDate;
+    private final String price;
+    private final String exchange;
+    private final String productType;
+    private final boolean valid;
+    private final int errorCodes;
+
+    /**
+     * Takes each field as its typed column and its raw column, only one of which is set.
+     */
+    public PriceRecordView(long id, Integer rowNumber,
+                           Long instrumentGuid, String rawInstrumentGuid,
+                           LocalDate tradeDate, String rawTradeDate,
+                           BigDecimal price, String rawPrice,
+                           Exchange exchange, String rawExchange,
+                           ProductType productType, String rawProductType,
+                           boolean valid, int errorCodes) {
+        this.id = id;
+        this.rowNumber = rowNumber;
+        this.instrumentGuid = instrumentGuid != null ? instrumentGuid.toString() : rawInstrumentGuid;
+        this.tradeDate = tradeDate != null ? tradeDate.toString() : rawTradeDate;
+        this.price = price != null ? price.toPlainString() : rawPrice;
+        this.exchange = exchange != null ? exchange.name() : rawExchange;
+        this.productType = productType != null ? productType.name() : rawProductType;
+        this.valid = valid;
+        this.errorCodes = errorCodes;
+    }
+
+    public Long getId() { return id; }
+    public Integer getRowNumber() { return rowNumber; }
+    public String getInstrumentGuid() { return instrumentGuid; }
+    public String getTradeDate() { return tradeDate; }
+    public String getPrice() { return price; }
+    public String getExchange() { return exchange; }
+    public String getProductType() { return productType; }
+    public boolean isValid() { return valid; }
+    public int getErrorCodes() { return errorCodes; }
+
+    public String getErrors() {
+        return errorCodes == 0 ? null
+                : String.join(",", ErrorCode.render(errorCodes, this, rowNumber == null ? 0 : rowNumber, 0));
+    }
+}
@@ -0,0 +1,20 @@
+package com.cme.pricingValidation.model;
+
+/**
+ * Kinds of priced products. Stored by ordinal, so new values must be added at the end.
+ */
+public enum ProductType {
+    FUT, OPT;
+
+    /**
+     * @return the product type matching the value ignoring case and surrounding whitespace, or null
+     */
+    public static ProductType fromCode(String value) {
+        if (value == null) return null;
+        String code = value.trim();
+        for (ProductType type : values()) {
+            if (type.name().equalsIgnoreCase(code)) return type;
+        }
+        return null;
+    }
+}
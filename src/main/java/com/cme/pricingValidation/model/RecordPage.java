@@ -0,0 +1,32 @@
+package com.cme.pricingValidation.model;
+
+import java.util.List;
+
+/**
+ * One page of records. The next page is requested with {@code after=nextCursor}; the
+ * cursor is null on the last page.
+ */
+public class RecordPage {
+    private final List<PriceRecordView> records;
+    private final Long nextCursor;
+
+    public RecordPage(List<PriceRecordView> records, Long nextCursor) {
+        this.records = records;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Builds the page from up to {@code limit + 1} records, the extra one only telling that
+     * there is a next page.
+     */
+    public static RecordPage of(List<PriceRecordView> records, int limit) {
+        if (records.size() <= limit) {
+            return new RecordPage(records, null);
+        }
+        records = records.subList(0, limit);
+        return new RecordPage(records, records.get(limit - 1).getId());
+    }
+
+    public List<PriceRecordView> getRecords() { return records; }
+    public Long getNextCursor() { return nextCursor; }
+}
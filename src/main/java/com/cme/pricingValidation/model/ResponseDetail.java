@@ -0,0 +1,25 @@
+package com.cme.pricingValidation.model;
+
+/**
+ * How much of the per-row outcome a validation response includes.
+ */
+public enum ResponseDetail {
+    /** counts and the errors by code, with a few sample rows each */
+    SUMMARY,
+    /** the summary and the result of every invalid row */
+    ERRORS,
+    /** the summary with every failure message, as before levels existed, and the result of every row */
+    FULL;
+
+    /**
+     * @return the level matching the value ignoring case and surrounding whitespace, or null
+     */
+    public static ResponseDetail fromCode(String value) {
+        if (value == null) return null;
+        String code = value.trim();
+        for (ResponseDetail detail : values()) {
+            if (detail.name().equalsIgnoreCase(code)) return detail;
+        }
+        return null;
+    }
+}
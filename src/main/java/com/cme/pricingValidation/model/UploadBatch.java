@@ -0,0 +1,64 @@
+package com.cme.pricingValidation.model;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One upload and its stored records, which carry its id. The summary is set once the
+ * upload is fully stored.
+ */
+public class UploadBatch {
+    private final String id;
+    private final Instant createdAt = Instant.now();
+    private volatile Instant finishedAt;
+    private volatile Map<String,Object> summary;
+    private volatile boolean reopened;
+    // of the invalid records stored, kept as they are stored, never removed
+    private final Set<Integer> errorMasks = ConcurrentHashMap.newKeySet();
+
+    public UploadBatch(String id) {
+        this.id = id;
+    }
+
+    public String getId() { return id; }
+    public Instant getCreatedAt() { return createdAt; }
+    public Instant getFinishedAt() { return finishedAt; }
+    public Map<String,Object> getSummary() { return summary; }
+
+    /**
+     * @return false while the upload is first stored and while it is {@link #reopen() reopened}
+     */
+    public boolean isFinished() { return finishedAt != null && !reopened; }
+
+    /**
+     * @param summary the upload summary, or null when the upload failed part way
+     */
+    public void finish(Map<String,Object> summary) {
+        this.summary = summary;
+        this.finishedAt = Instant.now();
+        this.reopened = false;
+    }
+
+    /**
+     * Marks a finished upload as being stored again, e.g. while a delta is applied to it.
+     * It keeps its summary and finish time until it is finished again.
+     */
+    public void reopen() {
+        this.reopened = true;
+    }
+
+    public void addErrorMask(int mask) {
+        errorMasks.add(mask);
+    }
+
+    /**
+     * The error masks of the invalid records stored in the upload. A mask stays listed once
+     * no record has it any more, e.g. after an edit.
+     */
+    public List<Integer> errorMasks() {
+        return List.copyOf(errorMasks);
+    }
+}
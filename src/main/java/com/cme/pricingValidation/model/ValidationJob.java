@@ -0,0 +1,103 @@
+package com.cme.pricingValidation.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * An upload validated in the background. The status and counters are updated by the job
+ * thread and can be read at any time.
+ */
+public class ValidationJob {
+
+    public enum Status { QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED }
+
+    private final String id;
+    private final String fileName;
+    private final Instant submittedAt = Instant.now();
+    private final IngestionProgress progress = new IngestionProgress();
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile Map<String,Object> summary;
+    private volatile String error;
+
+    public ValidationJob(String id, String fileName) {
+        this.id = id;
+        this.fileName = fileName;
+    }
+
+    public String getId() { return id; }
+    public String getFileName() { return fileName; }
+    public Status getStatus() { return status; }
+    public Instant getSubmittedAt() { return submittedAt; }
+    public Instant getStartedAt() { return startedAt; }
+    public Instant getFinishedAt() { return finishedAt; }
+    public Map<String,Object> getSummary() { return summary; }
+    public String getError() { return error; }
+
+    public long getRowsParsed() { return progress.getParsed(); }
+    public long getRowsValidated() { return progress.getValidated(); }
+    public long getRowsPersisted() { return progress.getPersisted(); }
+
+    /**
+     * Validated rows per second since the job started, 0 until it has.
+     */
+    public long getRowsPerSecond() {
+        Instant start = startedAt;
+        if (start == null) return 0;
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        long millis = Math.max(1, Duration.between(start, end).toMillis());
+        return progress.getValidated() * 1000 / millis;
+    }
+
+    @JsonIgnore
+    public IngestionProgress getProgress() { return progress; }
+
+    @JsonIgnore
+    public boolean isFinished() {
+        Status s = status;
+        return s == Status.SUCCEEDED || s == Status.FAILED || s == Status.CANCELLED;
+    }
+
+    /**
+     * Moves a queued job to running.
+     * @return false when the job was cancelled before it could start
+     */
+    public synchronized boolean start() {
+        if (status != Status.QUEUED) return false;
+        startedAt = Instant.now();
+        status = Status.RUNNING;
+        return true;
+    }
+
+    /**
+     * Requests the job to stop. A queued job is cancelled at once, a running one at its
+     * next chunk.
+     */
+    public synchronized void cancel() {
+        progress.cancel();
+        if (status == Status.QUEUED) finish(Status.CANCELLED);
+    }
+
+    public synchronized void succeeded(Map<String,Object> summary) {
+        this.summary = summary;
+        finish(Status.SUCCEEDED);
+    }
+
+    public synchronized void failed(String error) {
+        this.error = error;
+        finish(Status.FAILED);
+    }
+
+    public synchronized void cancelled() {
+        finish(Status.CANCELLED);
+    }
+
+    private void finish(Status status) {
+        finishedAt = Instant.now();
+        this.status = status;
+    }
+}
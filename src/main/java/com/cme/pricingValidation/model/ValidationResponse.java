@@ -0,0 +1,53 @@
+package com.cme.pricingValidation.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The response of a validation: the summary and, depending on the {@link ResponseDetail},
+ * the results of the invalid rows or of all rows. The results are written one by one to
+ * the generator as the response is sent, their messages rendered as each is written, and
+ * the ones the detail leaves out are never serialized.
+ */
+public class ValidationResponse extends JsonSerializable.Base {
+
+    private final Map<String,Object> summary;
+    private final List<ValidationResult> results;
+    private final ResponseDetail detail;
+
+    public ValidationResponse(Map<String,Object> summary, List<ValidationResult> results, ResponseDetail detail) {
+        this.summary = summary;
+        this.results = results;
+        this.detail = detail;
+    }
+
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject();
+        gen.writeFieldName("summary");
+        provider.defaultSerializeValue(summary, gen);
+        if (detail != ResponseDetail.SUMMARY) {
+            JsonSerializer<Object> serializer = provider.findValueSerializer(ValidationResult.class);
+            gen.writeArrayFieldStart("result");
+            for (ValidationResult result : results) {
+                if (detail == ResponseDetail.FULL || !result.getIfValid()) {
+                    serializer.serialize(result, gen, provider);
+                }
+            }
+            gen.writeEndArray();
+        }
+        gen.writeEndObject();
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider provider, TypeSerializer typeSer) throws IOException {
+        serialize(gen, provider);
+    }
+}
@@ -1,32 +1,52 @@
 package com.cme.pricingValidation.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.List;
 
 public class ValidationResult {
     private PriceRecord record;
-    private boolean valid;
-    private List<String> errors;
+    private int rowNumber;
+    private int errorMask;
+    private int duplicateOf;
 
     ValidationResult(){}
-    public ValidationResult(PriceRecord record, boolean valid, List<String> errors){
+    public ValidationResult(PriceRecord record, int rowNumber, int errorMask){
         this.record = record;
-        this.valid = valid;
-        this.errors = errors;
+        this.rowNumber = rowNumber;
+        this.errorMask = errorMask;
     }
 
     public PriceRecord getPriceRecord(){return record;}
-    public boolean getIfValid(){return valid;}
-    public List<String> getErrors(){return  errors;}
+    public boolean getIfValid(){return errorMask == 0;}
+
+    /**
+     * Human readable messages, rendered from the error codes on each call.
+     */
+    public List<String> getErrors(){return ErrorCode.render(errorMask, record, rowNumber, duplicateOf);}
+
+    @JsonIgnore
+    public int getRowNumber(){return rowNumber;}
+    @JsonIgnore
+    public int getErrorMask(){return errorMask;}
+
+    public boolean hasError(ErrorCode code){return code.isSet(errorMask);}
+    @JsonIgnore
+    public boolean isDuplicate(){return hasError(ErrorCode.DUPLICATE);}
+    @JsonIgnore
+    public int getDuplicateOf(){return duplicateOf;}
 
     public void setPriceRecord(PriceRecord record){
         this.record = record;
     }
-    public void setIfValid(boolean valid){
-        this.valid =valid;
+
+    public void addError(ErrorCode code){
+        this.errorMask |= code.bit();
     }
 
-    public void setErrors(List<String> errors){
-        this.errors = errors;
+    public void markDuplicateOf(int originalRow){
+        addError(ErrorCode.DUPLICATE);
+        this.duplicateOf = originalRow;
     }
 
 
@@ -0,0 +1,56 @@
+package com.cme.pricingValidation.repository;
+
+import com.cme.pricingValidation.model.ErrorCode;
+import com.cme.pricingValidation.model.Exchange;
+import com.cme.pricingValidation.model.ProductType;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+/**
+ * Conditions on the listed records. The records always come from one batch; the other
+ * conditions are optional, a null condition matching every record. The trade date bounds
+ * are inclusive.
+ *
+ * Only the batch and validity are served by an index. The other conditions are checked on
+ * the records of the batch as its index is walked in id order, so a page of a value few
+ * records have may read much of the batch.
+ */
+public class PriceRecordFilter {
+    private String batchId;
+    private Boolean valid;
+    private Exchange exchange;
+    private ProductType productType;
+    private LocalDate tradeDateFrom;
+    private LocalDate tradeDateTo;
+    private ErrorCode errorType;
+    private Collection<Integer> errorMasks;
+
+    public String getBatchId() { return batchId; }
+    public PriceRecordFilter setBatchId(String batchId) { this.batchId = batchId; return this; }
+
+    public Boolean getValid() { return valid; }
+    public PriceRecordFilter setValid(Boolean valid) { this.valid = valid; return this; }
+
+    public Exchange getExchange() { return exchange; }
+    public PriceRecordFilter setExchange(Exchange exchange) { this.exchange = exchange; return this; }
+
+    public ProductType getProductType() { return productType; }
+    public PriceRecordFilter setProductType(ProductType productType) { this.productType = productType; return this; }
+
+    public LocalDate getTradeDateFrom() { return tradeDateFrom; }
+    public PriceRecordFilter setTradeDateFrom(LocalDate tradeDateFrom) { this.tradeDateFrom = tradeDateFrom; return this; }
+
+    public LocalDate getTradeDateTo() { return tradeDateTo; }
+    public PriceRecordFilter setTradeDateTo(LocalDate tradeDateTo) { this.tradeDateTo = tradeDateTo; return this; }
+
+    public ErrorCode getErrorType() { return errorType; }
+    public PriceRecordFilter setErrorType(ErrorCode errorType) { this.errorType = errorType; return this; }
+
+    /**
+     * The error masks containing the error type among the records of the batch, read from
+     * the table when not set.
+     */
+    public Collection<Integer> getErrorMasks() { return errorMasks; }
+    public PriceRecordFilter setErrorMasks(Collection<Integer> errorMasks) { this.errorMasks = errorMasks; return this; }
+}
@@ -1,20 +1,102 @@
 package com.cme.pricingValidation.repository;
 
 import com.cme.pricingValidation.entity.PriceRecordEntity;
+import com.cme.pricingValidation.model.PriceRecordView;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface PriceRecordRepository extends JpaRepository<PriceRecordEntity,Long> {
-    List<PriceRecordEntity> findByValidFalse();
-    List<PriceRecordEntity> findByValidTrue();
-    List<PriceRecordEntity> findByInstrumentGuidAndTradeDateAndPriceAndExchangeAndProductType(
-            String instrumentGuid,
-            String tradeDate,
-            String price,
-            String exchange,
-            String productType
-    );
+public interface PriceRecordRepository extends JpaRepository<PriceRecordEntity,Long>, PriceRecordRepositoryCustom {
+    /** Rows fetched per round trip by the streaming queries. */
+    String STREAM_FETCH_SIZE = "500";
+
+    interface ValidityCount {
+        boolean getValid();
+        long getCount();
+    }
+
+    interface ErrorCodesCount {
+        int getErrorCodes();
+        long getCount();
+    }
+
+    @Query("select e.valid as valid, count(e) as count from PriceRecordEntity e where e.batchId = :batchId group by e.valid")
+    List<ValidityCount> countByValidity(String batchId);
+
+    @Query("select e.rowNumber from PriceRecordEntity e " +
+            "where e.batchId = :batchId and e.valid = false and e.rowNumber is not null order by e.rowNumber")
+    List<Integer> findInvalidRowNumbers(String batchId);
+
+    /**
+     * Counts the invalid records per distinct combination of error codes. There are only a
+     * few such combinations, so the result stays small whatever the number of records.
+     */
+    @Query("select e.errorCodes as errorCodes, count(e) as count from PriceRecordEntity e " +
+            "where e.batchId = :batchId and e.valid = false group by e.errorCodes")
+    List<ErrorCodesCount> countByErrorCodes(String batchId);
+
+    @Query("select distinct e.errorCodes from PriceRecordEntity e where e.batchId = :batchId and e.valid = false")
+    List<Integer> findInvalidErrorMasks(String batchId);
+
+    @Modifying
+    @Transactional
+    @Query("delete from PriceRecordEntity e where e.batchId = :batchId")
+    int deleteByBatchId(String batchId);
+
+    @Modifying
+    @Transactional
+    @Query("delete from PriceRecordEntity e where e.id in :ids")
+    int deleteByIds(Collection<Long> ids);
+
+    @Query("select coalesce(max(e.rowNumber), 0) from PriceRecordEntity e where e.batchId = :batchId")
+    int findMaxRowNumber(String batchId);
+
+    @Query("select new com.cme.pricingValidation.model.PriceRecordView(" +
+            "e.id, e.rowNumber, e.instrumentGuid, e.rawInstrumentGuid, e.tradeDate, e.rawTradeDate, " +
+            "e.price, e.rawPrice, e.exchange, e.rawExchange, e.productType, e.rawProductType, " +
+            "e.valid, e.errorCodes) from PriceRecordEntity e where e.id in :ids")
+    List<PriceRecordView> findViews(Collection<Long> ids);
+
+    // The streaming queries read through a database cursor and must be consumed, and
+    // closed, inside a transaction. The entities are loaded read only.
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("select e from PriceRecordEntity e where e.batchId = :batchId order by e.id")
+    Stream<PriceRecordEntity> streamBatch(String batchId);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("select e from PriceRecordEntity e where e.batchId = :batchId and e.valid = false order by e.id")
+    Stream<PriceRecordEntity> streamInvalid(String batchId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("select e.rowNumber from PriceRecordEntity e " +
+            "where e.batchId = :batchId and e.valid = false and e.rowNumber is not null order by e.rowNumber")
+    Stream<Integer> streamInvalidRowNumbers(String batchId);
+
+    // projected, so nothing enters the persistence context of the caller
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("select new com.cme.pricingValidation.model.PriceRecordView(" +
+            "e.id, e.rowNumber, e.instrumentGuid, e.rawInstrumentGuid, e.tradeDate, e.rawTradeDate, " +
+            "e.price, e.rawPrice, e.exchange, e.rawExchange, e.productType, e.rawProductType, " +
+            "e.valid, e.errorCodes) from PriceRecordEntity e where e.batchId = :batchId order by e.id")
+    Stream<PriceRecordView> streamViews(String batchId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("select new com.cme.pricingValidation.model.PriceRecordView(" +
+            "e.id, e.rowNumber, e.instrumentGuid, e.rawInstrumentGuid, e.tradeDate, e.rawTradeDate, " +
+            "e.price, e.rawPrice, e.exchange, e.rawExchange, e.productType, e.rawProductType, " +
+            "e.valid, e.errorCodes) from PriceRecordEntity e where e.batchId = :batchId and e.valid = false order by e.id")
+    Stream<PriceRecordView> streamInvalidViews(String batchId);
 }
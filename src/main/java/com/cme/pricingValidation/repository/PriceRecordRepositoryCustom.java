@@ -0,0 +1,16 @@
+package com.cme.pricingValidation.repository;
+
+import com.cme.pricingValidation.model.PriceRecordView;
+
+import java.util.List;
+
+public interface PriceRecordRepositoryCustom {
+
+    /**
+     * Keyset pagination: the records of the filter's batch matching the filter with an id
+     * greater than {@code afterId}, in id order. Each page seeks straight to its first id on
+     * the index instead of skipping an offset, so deep pages cost the same as the first.
+     * @param afterId the id of the last record of the previous page, or null for the first page
+     */
+    List<PriceRecordView> findPage(PriceRecordFilter filter, Long afterId, int limit);
+}
@@ -0,0 +1,78 @@
+package com.cme.pricingValidation.repository;
+
+import com.cme.pricingValidation.model.PriceRecordView;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class PriceRecordRepositoryImpl implements PriceRecordRepositoryCustom {
+
+    private static final String SELECT_VIEW = "select new com.cme.pricingValidation.model.PriceRecordView(" +
+            "e.id, e.rowNumber, e.instrumentGuid, e.rawInstrumentGuid, e.tradeDate, e.rawTradeDate, " +
+            "e.price, e.rawPrice, e.exchange, e.rawExchange, e.productType, e.rawProductType, " +
+            "e.valid, e.errorCodes) from PriceRecordEntity e";
+
+    private final EntityManager entityManager;
+
+    PriceRecordRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<PriceRecordView> findPage(PriceRecordFilter filter, Long afterId, int limit) {
+        if (filter.getBatchId() == null) return List.of();
+        StringBuilder jpql = new StringBuilder(SELECT_VIEW).append(" where e.batchId = :batchId");
+        Map<String,Object> params = new HashMap<>();
+        params.put("batchId", filter.getBatchId());
+
+        if (afterId != null) {
+            jpql.append(" and e.id > :afterId");
+            params.put("afterId", afterId);
+        }
+        if (filter.getValid() != null) {
+            jpql.append(" and e.valid = :valid");
+            params.put("valid", filter.getValid());
+        }
+        if (filter.getExchange() != null) {
+            jpql.append(" and e.exchange = :exchange");
+            params.put("exchange", filter.getExchange());
+        }
+        if (filter.getProductType() != null) {
+            jpql.append(" and e.productType = :productType");
+            params.put("productType", filter.getProductType());
+        }
+        if (filter.getTradeDateFrom() != null) {
+            jpql.append(" and e.tradeDate >= :tradeDateFrom");
+            params.put("tradeDateFrom", filter.getTradeDateFrom());
+        }
+        if (filter.getTradeDateTo() != null) {
+            jpql.append(" and e.tradeDate <= :tradeDateTo");
+            params.put("tradeDateTo", filter.getTradeDateTo());
+        }
+        if (filter.getErrorType() != null) {
+            // JPQL has no bitwise operators, so match the few distinct masks that contain the code
+            Collection<Integer> masks = filter.getErrorMasks();
+            if (masks == null) {
+                masks = new ArrayList<>();
+                for (Integer mask : entityManager.createQuery(
+                        "select distinct e.errorCodes from PriceRecordEntity e where e.batchId = :batchId and e.valid = false",
+                        Integer.class).setParameter("batchId", filter.getBatchId()).getResultList()) {
+                    if (filter.getErrorType().isSet(mask)) masks.add(mask);
+                }
+            }
+            if (masks.isEmpty()) return List.of();
+            jpql.append(" and e.errorCodes in :errorMasks");
+            params.put("errorMasks", masks);
+        }
+        jpql.append(" order by e.id");
+
+        TypedQuery<PriceRecordView> query = entityManager.createQuery(jpql.toString(), PriceRecordView.class);
+        params.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+}
@@ -1,66 +1,202 @@
 package com.cme.pricingValidation.service;
 
 import com.cme.pricingValidation.model.PriceRecord;
+import com.cme.pricingValidation.util.Compression;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Component
 public class CSVReader {
     private static final Logger logger = LoggerFactory.getLogger(CSVReader.class);
+    private static final int GUID = 0;
+    private static final int TRADE_DATE = 1;
+    private static final int PRICE = 2;
+    private static final int EXCHANGE = 3;
+    private static final int PRODUCT_TYPE = 4;
+
     public List<PriceRecord> read (MultipartFile file) throws IOException{
-        logger.info("Starting to read CSV file...",file.getOriginalFilename());
+        try(Stream<PriceRecord> records = stream(file)){
+            return records.toList();
+        }
+    }
 
-        List<PriceRecord> records = new ArrayList<>();
-        try(BufferedReader br = new BufferedReader(new InputStreamReader(file.getInputStream(),StandardCharsets.UTF_8))) {
-            String headerLine = br.readLine();
-            if (headerLine == null) {
-                logger.warn("CSV file {} is empty", file.getOriginalFilename());
-                throw new IllegalArgumentException("CSV file is empty");
+    /**
+     * Lazily parses the file: rows are only read as the returned stream is consumed,
+     * so callers can process very large files in chunks. The stream must be closed
+     * to release the underlying file handle.
+     */
+    public Stream<PriceRecord> stream(MultipartFile file) throws IOException{
+        return stream(file.getInputStream(), file.getOriginalFilename());
+    }
+
+    /**
+     * Same as {@link #stream(MultipartFile)} for CSV read from {@code in}, which the stream
+     * closes. Gzip and zstd compressed input is decompressed as it is read.
+     * @param name names the input in the logs
+     */
+    public Stream<PriceRecord> stream(InputStream in, String name) throws IOException{
+        CsvTokenizer tokenizer = open(in);
+        int[] columns = readHeader(tokenizer, name);
+
+        Iterator<PriceRecord> it = new Iterator<>() {
+            private boolean ready;
+            private boolean more;
+
+            @Override
+            public boolean hasNext() {
+                if (!ready) {
+                    try {
+                        more = tokenizer.nextRow();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    ready = true;
+                }
+                return more;
             }
-            String[] headerTokens = headerLine.split(",", -1);
-            for (int i = 0; i < headerTokens.length; i++) {
-                headerTokens[i] = headerTokens[i].trim();
+
+            @Override
+            public PriceRecord next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                ready = false;
+                return new PriceRecord(
+                        tokenizer.field(columns[GUID]),
+                        tokenizer.field(columns[TRADE_DATE]),
+                        tokenizer.field(columns[PRICE]),
+                        tokenizer.field(columns[EXCHANGE]),
+                        tokenizer.field(columns[PRODUCT_TYPE]));
             }
+        };
 
-            int guidIdx = findColumnIndex(headerTokens, "instrumentGuid", "instrument_guid");
-            int tradeDateIdx = findColumnIndex(headerTokens, "tradeDate", "trade_date");
-            int priceIdx = findColumnIndex(headerTokens, "price");
-            int exchangeIdx = findColumnIndex(headerTokens, "exchange");
-            int productTypeIdx = findColumnIndex(headerTokens, "productType", "product_type");
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(it, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        tokenizer.close();
+                        logger.info("Completed Parsing {}", name);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
 
-            if (guidIdx == -1 || tradeDateIdx == -1 || priceIdx == -1
-                    || exchangeIdx == -1 || productTypeIdx == -1) {
+    /**
+     * Reads CSV from {@code in} into {@link PriceColumns} chunks, so rows are parsed into
+     * typed columns as they are read without a {@link PriceRecord} each. Gzip and zstd
+     * compressed input is decompressed as it is read. The reader must be closed to release
+     * {@code in}.
+     * @param name names the input in the logs
+     */
+    public ColumnReader columns(InputStream in, String name) throws IOException{
+        CsvTokenizer tokenizer = open(in);
+        return new ColumnReader(tokenizer, readHeader(tokenizer, name), name);
+    }
 
+    /**
+     * Reads the rows of a CSV input chunk by chunk, see {@link #columns}.
+     */
+    public static final class ColumnReader implements Closeable {
+        private final CsvTokenizer tokenizer;
+        private final int[] columns;
+        private final String name;
+
+        private ColumnReader(CsvTokenizer tokenizer, int[] columns, String name) {
+            this.tokenizer = tokenizer;
+            this.columns = columns;
+            this.name = name;
+        }
+
+        /**
+         * Adds rows to the chunk until it is full or the input ends.
+         * @return the number of rows added, 0 at the end of the input
+         */
+        public int read(PriceColumns chunk) {
+            int added = 0;
+            try {
+                while (!chunk.isFull() && tokenizer.nextRow()) {
+                    chunk.add(tokenizer.field(columns[GUID]),
+                            tokenizer.field(columns[TRADE_DATE]),
+                            tokenizer.field(columns[PRICE]),
+                            tokenizer.field(columns[EXCHANGE]),
+                            tokenizer.field(columns[PRODUCT_TYPE]));
+                    added++;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return added;
+        }
+
+        @Override
+        public void close() throws IOException {
+            tokenizer.close();
+            logger.info("Completed Parsing {}", name);
+        }
+    }
+
+    /**
+     * Opens a tokenizer over {@code in}, decompressing gzip and zstd data, see {@link Compression}.
+     */
+    private CsvTokenizer open(InputStream in) throws IOException {
+        try {
+            return new CsvTokenizer(Compression.decompress(in));
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the header row, closing the tokenizer when it is missing or lacks a column.
+     * @return the column of each required field
+     */
+    private int[] readHeader(CsvTokenizer tokenizer, String name) throws IOException {
+        logger.info("Starting to read CSV file {}",name);
+        try {
+            if (!tokenizer.nextRow()) {
+                logger.warn("CSV file {} is empty", name);
+                throw new IllegalArgumentException("CSV file is empty");
+            }
+            return resolveColumns(tokenizer.fields());
+        } catch (IOException | RuntimeException e) {
+            tokenizer.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Maps each required field to its column in the header, so files with reordered
+     * or additional columns are read correctly.
+     */
+    private int[] resolveColumns(String[] headerTokens){
+        int[] columns = new int[5];
+        columns[GUID] = findColumnIndex(headerTokens, "instrumentGuid", "instrument_guid");
+        columns[TRADE_DATE] = findColumnIndex(headerTokens, "tradeDate", "trade_date");
+        columns[PRICE] = findColumnIndex(headerTokens, "price");
+        columns[EXCHANGE] = findColumnIndex(headerTokens, "exchange");
+        columns[PRODUCT_TYPE] = findColumnIndex(headerTokens, "productType", "product_type");
+
+        for (int column : columns) {
+            if (column == -1) {
                 logger.error("CSV headers missing required columns. Found headers: {}", String.join(",", headerTokens));
                 throw new IllegalArgumentException(
                         "CSV must contain headers: instrumentGuid, tradeDate, price, exchange, productType"
                 );
             }
-            String line;
-
-            while ((line = br.readLine())!= null){
-                if(line.trim().isEmpty()) continue;
-                String[] tokens = line.split(",",-1);
-                String guid = tokens.length >0 ? tokens[0].trim():"";
-                String tradeDate = tokens.length > 1 ? tokens[1].trim():"";
-                String price = tokens.length > 2 ? tokens[2].trim():"";
-                String exchange = tokens.length > 3 ? tokens[3].trim():"";
-                String productType = tokens.length > 4 ? tokens[4].trim():"";
-                records.add(new PriceRecord(guid,tradeDate,price,exchange,productType));
-
-            }
         }
-        logger.info("Completed Parsing returning Records ");
-        return records;
-
+        return columns;
     }
+
     private int findColumnIndex(String[] headers, String... possibleNames) {
         for (int i = 0; i < headers.length; i++) {
             String h = headers[i].trim().toLowerCase();
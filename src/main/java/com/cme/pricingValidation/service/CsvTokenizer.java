@@ -0,0 +1,203 @@
+package com.cme.pricingValidation.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Splits CSV input into fields directly on the raw bytes. Only the start and end offset of
+ * each field is recorded while scanning a row, and a String is created when a field is
+ * actually requested, so columns nobody asks for cost nothing.
+ *
+ * Supports quoted fields (with "" escapes and embedded separators or line breaks), CRLF line
+ * endings and a leading UTF-8 byte order mark. Unquoted fields are trimmed of spaces and tabs.
+ */
+public class CsvTokenizer implements Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final int NEED_MORE = -1;
+
+    private static final byte PLAIN = 0;
+    private static final byte QUOTED = 1;
+    private static final byte QUOTED_ESCAPES = 2;
+
+    private final InputStream in;
+    private byte[] buf;
+    private int pos;
+    private int limit;
+    private boolean eof;
+    private boolean started;
+
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private byte[] kinds = new byte[16];
+    private int fieldCount;
+
+    public CsvTokenizer(InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CsvTokenizer(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buf = new byte[Math.max(bufferSize, 16)];
+    }
+
+    /**
+     * Advances to the next non blank row.
+     * @return false once the input is exhausted
+     */
+    public boolean nextRow() throws IOException {
+        if (!started) {
+            started = true;
+            fill();
+            if (limit - pos >= 3 && buf[pos] == (byte) 0xEF && buf[pos + 1] == (byte) 0xBB && buf[pos + 2] == (byte) 0xBF) {
+                pos += 3;
+            }
+        }
+        while (true) {
+            if (pos >= limit) {
+                if (eof) return false;
+                fill();
+                continue;
+            }
+            int next = scanRow(pos);
+            if (next == NEED_MORE) {
+                fill();
+                continue;
+            }
+            pos = next;
+            if (fieldCount > 1 || ends[0] > starts[0] || kinds[0] != PLAIN) {
+                return true;
+            }
+        }
+    }
+
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * @return the field at the given column of the current row, or "" when the row is shorter
+     */
+    public String field(int index) {
+        if (index < 0 || index >= fieldCount) return "";
+        int s = starts[index], e = ends[index];
+        if (s == e) return "";
+        if (kinds[index] != QUOTED_ESCAPES) {
+            return new String(buf, s, e - s, StandardCharsets.UTF_8);
+        }
+        byte[] out = new byte[e - s];
+        int n = 0;
+        for (int i = s; i < e; i++) {
+            out[n++] = buf[i];
+            if (buf[i] == '"') i++;
+        }
+        return new String(out, 0, n, StandardCharsets.UTF_8);
+    }
+
+    public String[] fields() {
+        String[] values = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            values[i] = field(i);
+        }
+        return values;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Records the field offsets of the row starting at {@code p}.
+     * @return the offset just past the row terminator, or NEED_MORE if the row is not fully buffered
+     */
+    private int scanRow(int p) {
+        fieldCount = 0;
+        while (true) {
+            while (p < limit && (buf[p] == ' ' || buf[p] == '\t')) p++;
+            int s, e;
+            byte kind = PLAIN;
+            if (p < limit && buf[p] == '"') {
+                kind = QUOTED;
+                s = ++p;
+                while (true) {
+                    if (p >= limit) {
+                        if (!eof) return NEED_MORE;
+                        break;
+                    }
+                    if (buf[p] == '"') {
+                        if (p + 1 >= limit && !eof) return NEED_MORE;
+                        if (p + 1 < limit && buf[p + 1] == '"') {
+                            kind = QUOTED_ESCAPES;
+                            p += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    p++;
+                }
+                e = p;
+                if (p < limit) p++;
+                while (p < limit && buf[p] != ',' && buf[p] != '\n' && buf[p] != '\r') p++;
+            } else {
+                s = p;
+                while (p < limit && buf[p] != ',' && buf[p] != '\n' && buf[p] != '\r') p++;
+                e = p;
+                while (e > s && (buf[e - 1] == ' ' || buf[e - 1] == '\t')) e--;
+            }
+            if (p >= limit && !eof) return NEED_MORE;
+            addField(s, e, kind);
+
+            if (p >= limit) return p;
+            byte b = buf[p];
+            if (b == ',') {
+                p++;
+                continue;
+            }
+            if (b == '\r') {
+                p++;
+                if (p >= limit && !eof) return NEED_MORE;
+                if (p < limit && buf[p] == '\n') p++;
+                return p;
+            }
+            return p + 1;
+        }
+    }
+
+    private void addField(int s, int e, byte kind) {
+        if (fieldCount == starts.length) {
+            starts = Arrays.copyOf(starts, fieldCount * 2);
+            ends = Arrays.copyOf(ends, fieldCount * 2);
+            kinds = Arrays.copyOf(kinds, fieldCount * 2);
+        }
+        starts[fieldCount] = s;
+        ends[fieldCount] = e;
+        kinds[fieldCount] = kind;
+        fieldCount++;
+    }
+
+    /**
+     * Moves the unconsumed bytes to the front of the buffer (growing it when a single row
+     * fills it completely) and reads more input behind them.
+     */
+    private void fill() throws IOException {
+        if (eof) return;
+        int remaining = limit - pos;
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, remaining);
+        } else if (remaining == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length * 2);
+        }
+        pos = 0;
+        limit = remaining;
+        int n = in.read(buf, limit, buf.length - limit);
+        if (n == -1) {
+            eof = true;
+        } else {
+            limit += n;
+        }
+    }
+}
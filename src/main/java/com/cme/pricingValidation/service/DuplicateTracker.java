@@ -0,0 +1,80 @@
+package com.cme.pricingValidation.service;
+
+import com.cme.pricingValidation.model.PriceFields;
+import com.cme.pricingValidation.util.Fingerprint;
+import com.cme.pricingValidation.util.FingerprintTable;
+
+/**
+ * Remembers the first row each record was seen at, so duplicates can be detected
+ * across the chunks of a single upload. Records are keyed by a 128 bit fingerprint of
+ * their fields as they are stored, see {@link #naturalKey(Fingerprint, PriceFields, ParsedRecord)},
+ * so every upload path and the stored records agree on which records are the same.
+ */
+public class DuplicateTracker {
+
+    private final FingerprintTable firstSeen = new FingerprintTable();
+    private final Fingerprint fingerprint = new Fingerprint();
+    private final ParsedRecord parsed = new ParsedRecord();
+
+    /**
+     * Registers the record at the given row.
+     * @param rowNumber the 1 based row of the record
+     * @return the row of the original record, or -1 when this is the first occurrence
+     */
+    public int register(PriceFields record, int rowNumber) {
+        naturalKey(fingerprint.reset(), record, FieldParser.parse(record, parsed));
+        return register(fingerprint.high(), fingerprint.low(), rowNumber);
+    }
+
+    /**
+     * Registers the record with the given natural key at the given row.
+     * @return the row of the original record, or -1 when this is the first occurrence
+     */
+    public int register(long high, long low, int rowNumber) {
+        int original = firstSeen.putIfAbsent(high, low, rowNumber);
+        return original == FingerprintTable.ABSENT ? -1 : original;
+    }
+
+    /**
+     * @return whether a record with the given natural key was registered
+     */
+    public boolean contains(long high, long low) {
+        return firstSeen.get(high, low) != FingerprintTable.ABSENT;
+    }
+
+    public int size() {
+        return firstSeen.size();
+    }
+
+    /**
+     * Adds the fields identifying a price record to the fingerprint, see
+     * {@link #naturalKey(Fingerprint, PriceFields, ParsedRecord)}.
+     */
+    public static Fingerprint naturalKey(Fingerprint fingerprint, PriceFields record) {
+        return naturalKey(fingerprint, record, FieldParser.parse(record, new ParsedRecord()));
+    }
+
+    /**
+     * Adds the fields identifying a price record to the fingerprint as the record is stored:
+     * the parsed value of each field stored typed, so e.g. prices 100 and 100.00 or guids
+     * 0123 and 123 are the same, and the text of the others, exchange and product type
+     * ignoring case. {@link PriceColumns#naturalKey} keys its typed rows the same way.
+     * @param parsed the fields of {@code record}, parsed by {@link FieldParser}
+     */
+    public static Fingerprint naturalKey(Fingerprint fingerprint, PriceFields record, ParsedRecord parsed) {
+        if (parsed.getGuidStatus() == ParsedRecord.Status.OK) fingerprint.add(parsed.getGuid());
+        else fingerprint.add(record.getInstrumentGuid());
+        if (parsed.getTradeDateStatus() == ParsedRecord.Status.OK) fingerprint.add(parsed.getTradeDate());
+        else fingerprint.add(record.getTradeDate());
+        if (parsed.getPriceStatus() == ParsedRecord.Status.OK && parsed.getPriceScale() <= ParsedRecord.PRICE_SCALE) {
+            fingerprint.add(parsed.getScaledPrice());
+        } else {
+            fingerprint.add(record.getPrice());
+        }
+        if (parsed.getExchangeStatus() == ParsedRecord.Status.OK) fingerprint.add(parsed.getExchange().ordinal());
+        else fingerprint.addNormalized(record.getExchange());
+        if (parsed.getProductTypeStatus() == ParsedRecord.Status.OK) fingerprint.add(parsed.getProductType().ordinal());
+        else fingerprint.addNormalized(record.getProductType());
+        return fingerprint;
+    }
+}
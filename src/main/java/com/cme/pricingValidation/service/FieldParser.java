@@ -0,0 +1,161 @@
+package com.cme.pricingValidation.service;
+
+import com.cme.pricingValidation.model.Exchange;
+import com.cme.pricingValidation.model.PriceFields;
+import com.cme.pricingValidation.model.ProductType;
+
+/**
+ * Parses the fields of a price record in a single pass each, without throwing.
+ * Failures are reported through the status of the field in {@link ParsedRecord}, so bad
+ * files do not pay for exception and stack trace creation.
+ */
+public final class FieldParser {
+
+    private FieldParser() {}
+
+    public static ParsedRecord parse(PriceFields record, ParsedRecord into) {
+        parseGuid(record.getInstrumentGuid(), into);
+        parseTradeDate(record.getTradeDate(), into);
+        parsePrice(record.getPrice(), into);
+        parseExchange(record.getExchange(), into);
+        parseProductType(record.getProductType(), into);
+        return into;
+    }
+
+    public static void parseExchange(String value, ParsedRecord into) {
+        into.exchange = value == null ? null : Exchange.fromCode(value);
+        into.exchangeStatus = value == null || value.isBlank() ? ParsedRecord.Status.MISSING
+                : into.exchange == null ? ParsedRecord.Status.INVALID : ParsedRecord.Status.OK;
+    }
+
+    public static void parseProductType(String value, ParsedRecord into) {
+        into.productType = value == null ? null : ProductType.fromCode(value);
+        into.productTypeStatus = value == null || value.isBlank() ? ParsedRecord.Status.MISSING
+                : into.productType == null ? ParsedRecord.Status.INVALID : ParsedRecord.Status.OK;
+    }
+
+    /**
+     * Accepts an optionally signed whole number that fits in a long.
+     */
+    public static void parseGuid(String value, ParsedRecord into) {
+        into.guid = 0;
+        if (value == null || value.isBlank()) {
+            into.guidStatus = ParsedRecord.Status.MISSING;
+            return;
+        }
+        into.guidStatus = ParsedRecord.Status.INVALID;
+        int len = value.length();
+        int i = 0;
+        boolean negative = false;
+        char first = value.charAt(0);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++i == len) return;
+        }
+        long v = 0;
+        for (; i < len; i++) {
+            int d = value.charAt(i) - '0';
+            if (d < 0 || d > 9 || v > (Long.MAX_VALUE - d) / 10) return;
+            v = v * 10 + d;
+        }
+        into.guid = negative ? -v : v;
+        into.guidStatus = ParsedRecord.Status.OK;
+    }
+
+    /**
+     * Accepts an existing calendar date written as yyyy-MM-dd.
+     */
+    public static void parseTradeDate(String value, ParsedRecord into) {
+        into.tradeDate = 0;
+        if (value == null || value.isBlank()) {
+            into.tradeDateStatus = ParsedRecord.Status.MISSING;
+            return;
+        }
+        into.tradeDateStatus = ParsedRecord.Status.INVALID;
+        if (value.length() != 10 || value.charAt(4) != '-' || value.charAt(7) != '-') return;
+        int year = digits(value, 0, 4);
+        int month = digits(value, 5, 7);
+        int day = digits(value, 8, 10);
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) return;
+        into.tradeDate = (int) toEpochDay(year, month, day);
+        into.tradeDateStatus = ParsedRecord.Status.OK;
+    }
+
+    /**
+     * Accepts an optionally signed decimal number with up to 18 digits and no exponent.
+     * The digits and the number of decimals are kept separately, like a BigDecimal.
+     */
+    public static void parsePrice(String value, ParsedRecord into) {
+        into.priceUnscaled = 0;
+        into.priceScale = 0;
+        if (value == null || value.isBlank()) {
+            into.priceStatus = ParsedRecord.Status.MISSING;
+            return;
+        }
+        into.priceStatus = ParsedRecord.Status.INVALID;
+        int len = value.length();
+        int i = 0;
+        boolean negative = false;
+        char first = value.charAt(0);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+        long unscaled = 0;
+        int scale = 0;
+        int digits = 0;
+        boolean point = false;
+        for (; i < len; i++) {
+            char c = value.charAt(i);
+            if (c == '.' && !point) {
+                point = true;
+                continue;
+            }
+            int d = c - '0';
+            if (d < 0 || d > 9 || ++digits > 18) return;
+            unscaled = unscaled * 10 + d;
+            if (point) scale++;
+        }
+        if (digits == 0) return;
+        into.priceUnscaled = negative ? -unscaled : unscaled;
+        into.priceScale = scale;
+        into.priceStatus = ParsedRecord.Status.OK;
+    }
+
+    /**
+     * @return the value of the decimal digits between from and to, or -1 if any is not a digit
+     */
+    private static int digits(String value, int from, int to) {
+        int v = 0;
+        for (int i = from; i < to; i++) {
+            int d = value.charAt(i) - '0';
+            if (d < 0 || d > 9) return -1;
+            v = v * 10 + d;
+        }
+        return v;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4: case 6: case 9: case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Days since 1970-01-01 for a valid proleptic Gregorian date, same as LocalDate.toEpochDay().
+     */
+    static long toEpochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+}
@@ -0,0 +1,145 @@
+package com.cme.pricingValidation.service;
+
+import com.cme.pricingValidation.model.ErrorCode;
+import com.cme.pricingValidation.model.PriceRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * The built-in checks of the individual fields of a record. Each rule reads only its own
+ * field, which parses it, so a disabled rule leaves its field unparsed unless a later rule
+ * reads it.
+ */
+public final class FieldRules {
+
+    private FieldRules() {}
+
+    /**
+     * The built-in rules with their default configuration, for use outside the application context.
+     */
+    public static List<ValidationRule> defaults() {
+        return List.of(new GuidRule(), new TradeDateRule(0), new PriceRule(), new ExchangeRule(), new ProductTypeRule());
+    }
+
+    @Component
+    public static class GuidRule implements ValidationRule {
+        @Override
+        public String name() {
+            return "instrument-guid";
+        }
+
+        @Override
+        public boolean needsRecord() {
+            return false;
+        }
+
+        @Override
+        public int check(PriceRecord record, ParsedRecord parsed, long today) {
+            return switch (parsed.getGuidStatus()) {
+                case MISSING -> ErrorCode.MISSING_GUID.bit();
+                case INVALID -> ErrorCode.INVALID_GUID.bit();
+                case OK -> 0;
+            };
+        }
+    }
+
+    @Component
+    public static class TradeDateRule implements ValidationRule {
+        private final int maxFutureDays;
+
+        /**
+         * @param maxFutureDays how many days after today a trade date may be
+         */
+        public TradeDateRule(@Value("${pricing.validation.rules.trade-date.max-future-days:0}") int maxFutureDays) {
+            this.maxFutureDays = maxFutureDays;
+        }
+
+        @Override
+        public String name() {
+            return "trade-date";
+        }
+
+        @Override
+        public boolean needsRecord() {
+            return false;
+        }
+
+        @Override
+        public int check(PriceRecord record, ParsedRecord parsed, long today) {
+            return switch (parsed.getTradeDateStatus()) {
+                case MISSING -> ErrorCode.MISSING_TRADE_DATE.bit();
+                case INVALID -> ErrorCode.INVALID_TRADE_DATE.bit();
+                case OK -> parsed.getTradeDate() > today + maxFutureDays ? ErrorCode.FUTURE_TRADE_DATE.bit() : 0;
+            };
+        }
+    }
+
+    @Component
+    public static class PriceRule implements ValidationRule {
+        @Override
+        public String name() {
+            return "price";
+        }
+
+        @Override
+        public boolean needsRecord() {
+            return false;
+        }
+
+        @Override
+        public int check(PriceRecord record, ParsedRecord parsed, long today) {
+            return switch (parsed.getPriceStatus()) {
+                case MISSING -> ErrorCode.MISSING_PRICE.bit();
+                case INVALID -> ErrorCode.INVALID_PRICE_FORMAT.bit();
+                case OK -> (parsed.getPriceUnscaled() <= 0 ? ErrorCode.NON_POSITIVE_PRICE.bit() : 0)
+                        | (parsed.getPriceScale() > ParsedRecord.PRICE_SCALE ? ErrorCode.PRICE_PRECISION.bit() : 0);
+            };
+        }
+    }
+
+    @Component
+    public static class ExchangeRule implements ValidationRule {
+        @Override
+        public String name() {
+            return "exchange";
+        }
+
+        @Override
+        public boolean needsRecord() {
+            return false;
+        }
+
+        @Override
+        public int check(PriceRecord record, ParsedRecord parsed, long today) {
+            return switch (parsed.getExchangeStatus()) {
+                case MISSING -> ErrorCode.MISSING_EXCHANGE.bit();
+                case INVALID -> ErrorCode.INVALID_EXCHANGE.bit();
+                case OK -> 0;
+            };
+        }
+    }
+
+    @Component
+    public static class ProductTypeRule implements ValidationRule {
+        @Override
+        public String name() {
+            return "product-type";
+        }
+
+        @Override
+        public boolean needsRecord() {
+            return false;
+        }
+
+        @Override
+        public int check(PriceRecord record, ParsedRecord parsed, long today) {
+            return switch (parsed.getProductTypeStatus()) {
+                case MISSING -> ErrorCode.MISSING_PRODUCT_TYPE.bit();
+                case INVALID -> ErrorCode.INVALID_PRODUCT_TYPE.bit();
+                case OK -> 0;
+            };
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.cme.pricingValidation.service;
+
+import com.cme.pricingValidation.model.ErrorCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters of the ingestion pipeline, published at {@code /actuator/prometheus}:
+ * <ul>
+ *     <li>{@code pricing.ingest.stage}: time spent per stage (parse, validate, dedupe, persist),
+ *     recorded once per chunk, with latency histograms</li>
+ *     <li>{@code pricing.ingest.rows}: rows by outcome, whose rate is the rows per second</li>
+ *     <li>{@code pricing.ingest.chunk.size} and {@code pricing.ingest.upload.size}: rows per chunk and per upload</li>
+ *     <li>{@code pricing.ingest.throughput}: rows per second of each upload</li>
+ *     <li>{@code pricing.validation.errors}: failures by error type</li>
+ *     <li>{@code pricing.dedupe.stored}: rows hitting the filters of stored records, and those confirmed</li>
+ *     <li>{@code pricing.validation.rule.*}: the statistics of each validation rule</li>
+ * </ul>
+ * Meters are registered up front and only incremented per chunk, never looked up per row.
+ */
+@Component
+public class IngestionMetrics {
+
+    public enum Stage {
+        PARSE, VALIDATE, DEDUPE, PERSIST;
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final MeterRegistry registry;
+    private final Timer[] stages = new Timer[Stage.values().length];
+    private final Counter validRows;
+    private final Counter invalidRows;
+    private final Counter duplicateRows;
+    private final Counter[] errors = new Counter[ErrorCode.values().length];
+    private final DistributionSummary chunkSize;
+    private final DistributionSummary uploadSize;
+    private final DistributionSummary throughput;
+    private final Counter storedFilterHits;
+    private final Counter storedConfirmed;
+
+    /**
+     * Meters kept in memory only, for services created outside the application context.
+     */
+    public IngestionMetrics() {
+        this(new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public IngestionMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (Stage stage : Stage.values()) {
+            stages[stage.ordinal()] = Timer.builder("pricing.ingest.stage")
+                    .description("Time spent in each ingestion stage")
+                    .tag("stage", stage.tag())
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+        validRows = rows("valid");
+        invalidRows = rows("invalid");
+        duplicateRows = rows("duplicate");
+        for (ErrorCode code : ErrorCode.values()) {
+            errors[code.ordinal()] = Counter.builder("pricing.validation.errors")
+                    .description("Validation failures by error type")
+                    .tag("type", code.name())
+                    .register(registry);
+        }
+        chunkSize = DistributionSummary.builder("pricing.ingest.chunk.size")
+                .description("Rows per validated chunk").baseUnit("rows").register(registry);
+        uploadSize = DistributionSummary.builder("pricing.ingest.upload.size")
+                .description("Rows per upload").baseUnit("rows").register(registry);
+        throughput = DistributionSummary.builder("pricing.ingest.throughput")
+                .description("Rows per second of each upload").baseUnit("rows.per.second").register(registry);
+        storedFilterHits = storedDuplicates("filter-hit");
+        storedConfirmed = storedDuplicates("confirmed");
+    }
+
+    private Counter rows(String outcome) {
+        return Counter.builder("pricing.ingest.rows")
+                .description("Validated rows by outcome").baseUnit("rows")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private Counter storedDuplicates(String result) {
+        return Counter.builder("pricing.dedupe.stored")
+                .description("Rows matching the duplicate filters of stored records, and those confirmed").baseUnit("rows")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    public void recordStage(Stage stage, long nanos) {
+        stages[stage.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Counts the outcome of the rows of a validated chunk.
+     * @param errorCounts failures per {@link ErrorCode} ordinal
+     */
+    public void recordChunk(int rows, int valid, int duplicates, int[] errorCounts) {
+        chunkSize.record(rows);
+        validRows.increment(valid);
+        invalidRows.increment(rows - valid - duplicates);
+        duplicateRows.increment(duplicates);
+        for (int i = 0; i < errorCounts.length; i++) {
+            if (errorCounts[i] != 0) errors[i].increment(errorCounts[i]);
+        }
+    }
+
+    /**
+     * Counts the rows of a chunk found in the filters of stored records, and those confirmed
+     * as {@link ErrorCode#ALREADY_STORED}.
+     */
+    public void recordStoredDuplicates(int filterHits, int confirmed) {
+        if (filterHits == 0) return;
+        storedFilterHits.increment(filterHits);
+        storedConfirmed.increment(confirmed);
+        errors[ErrorCode.ALREADY_STORED.ordinal()].increment(confirmed);
+    }
+
+    public void recordUpload(long rows, long nanos) {
+        uploadSize.record(rows);
+        if (nanos > 0) {
+            throughput.record(rows * 1e9 / nanos);
+        }
+    }
+
+    /**
+     * Publishes the counters of the validation rules, read when the registry is scraped.
+     */
+    public void bindRules(List<RuleChain.RuleStats> rules) {
+        for (RuleChain.RuleStats rule : rules) {
+            FunctionCounter.builder("pricing.validation.rule.invocations", rule, RuleChain.RuleStats::getInvocations)
+                    .tag("rule", rule.getName()).register(registry);
+            FunctionCounter.builder("pricing.validation.rule.failures", rule, RuleChain.RuleStats::getFailures)
+                    .tag("rule", rule.getName()).register(registry);
+            FunctionCounter.builder("pricing.validation.rule.time", rule, r -> r.getTotalNanos() / 1e9)
+                    .tag("rule", rule.getName()).baseUnit("seconds").register(registry);
+        }
+    }
+}
@@ -0,0 +1,462 @@
+package com.cme.pricingValidation.service;
+
+import com.cme.pricingValidation.entity.PriceRecordEntity;
+import com.cme.pricingValidation.model.ErrorCode;
+import com.cme.pricingValidation.model.IngestionProgress;
+import com.cme.pricingValidation.model.PriceFields;
+import com.cme.pricingValidation.model.PriceRecord;
+import com.cme.pricingValidation.model.PriceRecordView;
+import com.cme.pricingValidation.model.ValidationResult;
+import com.cme.pricingValidation.repository.PriceRecordRepository;
+import com.cme.pricingValidation.util.Fingerprint;
+import com.cme.pricingValidation.util.FingerprintTable;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+@Service
+public class IngestionService {
+    private static final Logger logger = LoggerFactory.getLogger(IngestionService.class);
+
+    private final ValidationService validationService;
+    private final ReportService reportService;
+    private final PriceRecordRepository repository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final IngestionMetrics metrics;
+    private final NaturalKeyIndex naturalKeys;
+    private final StoredDuplicateIndex storedDuplicates;
+    private final int chunkSize;
+
+    public IngestionService(ValidationService validationService, ReportService reportService,
+                            PriceRecordRepository repository,
+                            EntityManager entityManager, TransactionTemplate transactionTemplate,
+                            IngestionMetrics metrics, NaturalKeyIndex naturalKeys,
+                            StoredDuplicateIndex storedDuplicates,
+                            @Value("${pricing.ingest.chunk-size:1000}") int chunkSize) {
+        this.validationService = validationService;
+        this.reportService = reportService;
+        this.repository = repository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.metrics = metrics;
+        this.naturalKeys = naturalKeys;
+        this.storedDuplicates = storedDuplicates;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Stores the given, already validated results as a new batch.
+     * @return the batch id
+     */
+    public String store(List<ValidationResult> results) {
+        String batchId = newBatchId();
+        reportService.startBatch(batchId);
+        naturalKeys.create(batchId);
+        Map<String,Object> sum = null;
+        try {
+            int nextRow = 1;
+            long valid = 0;
+            for (int from = 0; from < results.size(); from += chunkSize) {
+                nextRow = persist(results.subList(from, Math.min(from + chunkSize, results.size())), nextRow, batchId);
+            }
+            for (ValidationResult r : results) {
+                if (r.getIfValid()) valid++;
+            }
+            sum = new HashMap<>();
+            sum.put("total",results.size());
+            sum.put("valid",valid);
+            sum.put("invalid",results.size()-valid);
+            sum.put("persisted",nextRow-1);
+            return batchId;
+        } finally {
+            finish(batchId, sum);
+        }
+    }
+
+    /**
+     * Validates and stores the records chunk by chunk as a new batch. Only one chunk of
+     * records, results and entities is held at a time, so memory use depends on the chunk
+     * size and not on the number of records. Returns counts and the batch id only, as the
+     * per-row results are not retained.
+     */
+    public Map<String,Object> ingest(Stream<PriceRecord> records) {
+        return ingest(records, results -> {});
+    }
+
+    /**
+     * Like {@link #ingest(Stream)}, handing the results of each chunk to {@code onChunk}
+     * once the chunk is stored, in row order.
+     */
+    public Map<String,Object> ingest(Stream<PriceRecord> records, Consumer<List<ValidationResult>> onChunk) {
+        return ingest(newBatchId(), records, new IngestionProgress(), onChunk);
+    }
+
+    /**
+     * Like {@link #ingest(Stream, Consumer)} into the batch with the given id, counting the
+     * rows in {@code progress} as they are parsed, validated and stored. A cancellation is
+     * honoured between chunks by throwing {@link CancellationException}; the chunks stored
+     * until then are kept.
+     */
+    public Map<String,Object> ingest(String batchId, Stream<PriceRecord> records, IngestionProgress progress,
+                                     Consumer<List<ValidationResult>> onChunk) {
+        reportService.startBatch(batchId);
+        naturalKeys.create(batchId);
+        Map<String,Object> sum = null;
+        try {
+            sum = ingestBatch(batchId, records, progress, onChunk);
+            return sum;
+        } finally {
+            finish(batchId, sum);
+        }
+    }
+
+    private Map<String,Object> ingestBatch(String batchId, Stream<PriceRecord> records, IngestionProgress progress,
+                                           Consumer<List<ValidationResult>> onChunk) {
+        DuplicateTracker tracker = new DuplicateTracker();
+        List<PriceRecord> chunk = new ArrayList<>(chunkSize);
+        long total = 0, valid = 0, duplicates = 0;
+        int nextRow = 1, chunks = 0;
+
+        long started = System.nanoTime();
+        // the records are parsed as they are pulled, so the wait for a full chunk is its parse time
+        long chunkStarted = started;
+        Iterator<PriceRecord> it = records.iterator();
+        while (it.hasNext()) {
+            chunk.add(it.next());
+            progress.addParsed(1);
+            if (chunk.size() == chunkSize || !it.hasNext()) {
+                metrics.recordStage(IngestionMetrics.Stage.PARSE, System.nanoTime() - chunkStarted);
+                if (progress.isCancelled()) {
+                    throw new CancellationException("Ingestion cancelled after " + total + " records");
+                }
+                List<ValidationResult> results = validationService.validateChunk(chunk, (int) total + 1, tracker);
+                progress.addValidated(results.size());
+                int stored = persist(results, nextRow, batchId) - nextRow;
+                for (ValidationResult r : results) {
+                    if (r.getIfValid()) valid++;
+                    else if (r.isDuplicate()) duplicates++;
+                }
+                nextRow += stored;
+                progress.addPersisted(stored);
+                onChunk.accept(results);
+                total += chunk.size();
+                chunks++;
+                chunk.clear();
+                logger.debug("Processed chunk {} ({} records so far)", chunks, total);
+                chunkStarted = System.nanoTime();
+            }
+        }
+        metrics.recordUpload(total, System.nanoTime() - started);
+        logger.info("Stored batch {}: {} records in {} chunks", batchId, total, chunks);
+
+        Map<String,Object> sum = new HashMap<>();
+        sum.put("batchId",batchId);
+        sum.put("total",total);
+        sum.put("valid",valid);
+        sum.put("invalid",total-valid);
+        sum.put("duplicates",duplicates);
+        sum.put("persisted",nextRow-1);
+        sum.put("chunks",chunks);
+        return sum;
+    }
+
+    /**
+     * Like {@link #ingest(Stream)} for CSV read by column, see {@link #ingestColumns(String,
+     * CSVReader.ColumnReader, IngestionProgress)}.
+     */
+    public Map<String,Object> ingestColumns(CSVReader.ColumnReader reader) {
+        return ingestColumns(newBatchId(), reader, new IngestionProgress());
+    }
+
+    /**
+     * Like {@link #ingest(String, Stream, IngestionProgress, Consumer)} for CSV read into
+     * {@link PriceColumns} chunks: rows are validated, deduplicated and stored straight from
+     * their typed columns, so no {@link PriceRecord} or {@link ValidationResult} is created
+     * for a row that parses. The chunk's columns are reused from one chunk to the next.
+     */
+    public Map<String,Object> ingestColumns(String batchId, CSVReader.ColumnReader reader, IngestionProgress progress) {
+        reportService.startBatch(batchId);
+        naturalKeys.create(batchId);
+        Map<String,Object> sum = null;
+        try {
+            sum = ingestColumnBatch(batchId, reader, progress);
+            return sum;
+        } finally {
+            finish(batchId, sum);
+        }
+    }
+
+    private Map<String,Object> ingestColumnBatch(String batchId, CSVReader.ColumnReader reader, IngestionProgress progress) {
+        DuplicateTracker tracker = new DuplicateTracker();
+        PriceColumns chunk = new PriceColumns(chunkSize);
+        long total = 0, valid = 0, duplicates = 0;
+        int nextRow = 1, chunks = 0;
+
+        long started = System.nanoTime();
+        long chunkStarted = started;
+        int read;
+        while ((read = reader.read(chunk)) > 0) {
+            progress.addParsed(read);
+            metrics.recordStage(IngestionMetrics.Stage.PARSE, System.nanoTime() - chunkStarted);
+            if (progress.isCancelled()) {
+                throw new CancellationException("Ingestion cancelled after " + total + " records");
+            }
+            int[] errors = validationService.validateColumns(chunk, (int) total + 1, tracker);
+            progress.addValidated(read);
+            List<PriceRecordEntity> entities = new ArrayList<>(read);
+            for (int i = 0; i < read; i++) {
+                if (ErrorCode.DUPLICATE.isSet(errors[i])) {
+                    duplicates++;
+                    continue;
+                }
+                PriceRecordEntity entity = chunk.entity(i, nextRow++, errors[i]);
+                entity.setBatchId(batchId);
+                entities.add(entity);
+            }
+            save(batchId, entities);
+            for (PriceRecordEntity entity : entities) {
+                if (entity.isValid()) valid++;
+            }
+            progress.addPersisted(entities.size());
+            total += read;
+            chunks++;
+            chunk.clear();
+            logger.debug("Processed chunk {} ({} records so far)", chunks, total);
+            chunkStarted = System.nanoTime();
+        }
+        metrics.recordUpload(total, System.nanoTime() - started);
+        logger.info("Stored batch {}: {} records in {} chunks", batchId, total, chunks);
+
+        Map<String,Object> sum = new HashMap<>();
+        sum.put("batchId",batchId);
+        sum.put("total",total);
+        sum.put("valid",valid);
+        sum.put("invalid",total-valid);
+        sum.put("duplicates",duplicates);
+        sum.put("persisted",nextRow-1);
+        sum.put("chunks",chunks);
+        return sum;
+    }
+
+    /**
+     * Applies a full resend of an upload to its stored batch as a delta. Every row is
+     * hashed, by its natural key as it would be stored, and looked up in the batch's
+     * {@link NaturalKeyIndex}: rows found are left alone, only the others are validated and
+     * inserted, and stored rows missing from the resend are deleted. A row inserted with the
+     * instrument, trade date, exchange and product type of a deleted row counts as changed.
+     *
+     * Inserted rows are numbered after the last stored row; unchanged rows keep their numbers.
+     * @return the diff counts
+     * @throws IllegalStateException when the batch is unknown or still being stored
+     */
+    public Map<String,Object> ingestDelta(String batchId, Stream<PriceRecord> records) {
+        return ingestDelta(batchId, records, results -> {});
+    }
+
+    /**
+     * Like {@link #ingestDelta(String, Stream)}, handing the results of each chunk of
+     * inserted rows to {@code onChunk} once the chunk is stored, numbered as stored.
+     */
+    public Map<String,Object> ingestDelta(String batchId, Stream<PriceRecord> records,
+                                          Consumer<List<ValidationResult>> onChunk) {
+        if (!reportService.reopenBatch(batchId)) {
+            throw new IllegalStateException("Batch " + batchId + " is unknown or still being stored");
+        }
+        // a failed delta leaves the batch with its summary, so it is still reported on by default
+        Map<String,Object> sum = reportService.getBatch(batchId).getSummary();
+        try {
+            sum = ingestDeltaBatch(batchId, records, onChunk);
+            return sum;
+        } finally {
+            finish(batchId, sum);
+        }
+    }
+
+    private Map<String,Object> ingestDeltaBatch(String batchId, Stream<PriceRecord> records,
+                                                Consumer<List<ValidationResult>> onChunk) {
+        long started = System.nanoTime();
+        DuplicateTracker seen = new DuplicateTracker();
+        // rows reaching validation are already unique
+        DuplicateTracker validated = new DuplicateTracker();
+        FingerprintTable insertedIdentities = new FingerprintTable();
+        Fingerprint fingerprint = new Fingerprint();
+        List<PriceRecord> chunk = new ArrayList<>(chunkSize);
+        long total = 0, unchanged = 0, duplicates = 0, inserted = 0, valid = 0;
+        int nextRow = repository.findMaxRowNumber(batchId) + 1;
+
+        long chunkStarted = started;
+        Iterator<PriceRecord> it = records.iterator();
+        while (it.hasNext()) {
+            PriceRecord record = it.next();
+            total++;
+            PriceRecordEntity stored = storedForm(record);
+            if (seen.register(stored, (int) total) != -1) {
+                duplicates++;
+            } else if (naturalKeys.find(batchId, NaturalKeyIndex.Key.of(stored)) != null) {
+                unchanged++;
+            } else {
+                identity(fingerprint.reset(), stored);
+                insertedIdentities.putIfAbsent(fingerprint.high(), fingerprint.low(), 1);
+                chunk.add(record);
+            }
+            if (chunk.size() == chunkSize || (!it.hasNext() && !chunk.isEmpty())) {
+                metrics.recordStage(IngestionMetrics.Stage.PARSE, System.nanoTime() - chunkStarted);
+                // being unique, every validated row is stored, under the number it is validated with
+                List<ValidationResult> results = validationService.validateChunk(chunk, nextRow, validated);
+                nextRow = persist(results, nextRow, batchId);
+                onChunk.accept(results);
+                for (ValidationResult r : results) {
+                    if (r.getIfValid()) valid++;
+                }
+                inserted += chunk.size();
+                chunk.clear();
+                chunkStarted = System.nanoTime();
+            }
+        }
+
+        List<Long> removedIds = new ArrayList<>();
+        List<NaturalKeyIndex.Key> removedKeys = new ArrayList<>();
+        naturalKeys.forEach(batchId, (high, low, id) -> {
+            if (!seen.contains(high, low)) {
+                removedIds.add(id);
+                removedKeys.add(new NaturalKeyIndex.Key(high, low));
+            }
+        });
+        long changed = 0;
+        for (int from = 0; from < removedIds.size(); from += chunkSize) {
+            List<Long> ids = removedIds.subList(from, Math.min(from + chunkSize, removedIds.size()));
+            for (PriceRecordView removed : repository.findViews(ids)) {
+                identity(fingerprint.reset(), removed);
+                if (insertedIdentities.get(fingerprint.high(), fingerprint.low()) != FingerprintTable.ABSENT) {
+                    changed++;
+                }
+            }
+            long deleteStarted = System.nanoTime();
+            repository.deleteByIds(ids);
+            metrics.recordStage(IngestionMetrics.Stage.PERSIST, System.nanoTime() - deleteStarted);
+        }
+        for (int i = 0; i < removedIds.size(); i++) {
+            naturalKeys.release(batchId, removedKeys.get(i), removedIds.get(i));
+        }
+        metrics.recordUpload(total, System.nanoTime() - started);
+
+        ReportService.Counts counts = reportService.storedCounts(batchId);
+        Map<String,Object> sum = new HashMap<>();
+        sum.put("batchId",batchId);
+        sum.put("mode","delta");
+        sum.put("total",total);
+        sum.put("unchanged",unchanged);
+        sum.put("duplicates",duplicates);
+        sum.put("inserted",inserted-changed);
+        sum.put("changed",changed);
+        sum.put("removed",removedIds.size()-changed);
+        sum.put("validated",inserted);
+        sum.put("validatedValid",valid);
+        sum.put("valid",counts.getValid());
+        sum.put("invalid",counts.getInvalid());
+        sum.put("persisted",counts.getTotal());
+        return sum;
+    }
+
+    /**
+     * The record as {@link #persist} would store it, with its fields normalized.
+     */
+    private PriceRecordEntity storedForm(PriceRecord rec) {
+        return new PriceRecordEntity(rec.getInstrumentGuid(),rec.getTradeDate(),rec.getPrice(),
+                upperCase(rec.getExchange()),upperCase(rec.getProductType()),null,false,0);
+    }
+
+    // what a corrected row keeps: everything but the price
+    private static Fingerprint identity(Fingerprint fingerprint, PriceFields record) {
+        return fingerprint
+                .add(record.getInstrumentGuid())
+                .add(record.getTradeDate())
+                .addNormalized(record.getExchange())
+                .addNormalized(record.getProductType());
+    }
+
+    // the rules learn from a batch once it is complete, even when storing it failed midway
+    private void finish(String batchId, Map<String,Object> sum) {
+        try {
+            validationService.finished(batchId);
+        } finally {
+            reportService.finishBatch(batchId, sum);
+        }
+    }
+
+    private String newBatchId() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * Stores every non duplicate result in the batch, numbering the stored rows from
+     * {@code nextRow}, see {@link #save}. Results of rows an earlier upload already stored
+     * get {@link ErrorCode#ALREADY_STORED} like their records.
+     * @return the row number to continue from
+     */
+    private int persist(List<ValidationResult> results, int nextRow, String batchId) {
+        List<PriceRecordEntity> entities = new ArrayList<>(results.size());
+        List<ValidationResult> kept = new ArrayList<>(results.size());
+        for(ValidationResult r : results){
+            if(r.isDuplicate()){
+                logger.debug("Duplicate Detected Skipping this record");
+                continue;
+            }
+            PriceRecord rec = r.getPriceRecord();
+            PriceRecordEntity entity = new PriceRecordEntity(
+                    rec.getInstrumentGuid(),rec.getTradeDate(),rec.getPrice(),upperCase(rec.getExchange()),upperCase(rec.getProductType()),
+                    nextRow++,r.getIfValid(),r.getErrorMask()
+            );
+            entity.setBatchId(batchId);
+            entities.add(entity);
+            kept.add(r);
+        }
+        save(batchId, entities);
+        for (int i = 0; i < entities.size(); i++) {
+            if (kept.get(i).getIfValid() && !entities.get(i).isValid()) {
+                kept.get(i).addError(ErrorCode.ALREADY_STORED);
+            }
+        }
+        return nextRow;
+    }
+
+    /**
+     * Stores the records of the batch in one transaction. Valid records an earlier upload
+     * already stored are marked invalid first. The inserts are sent as JDBC batches when
+     * the transaction flushes.
+     */
+    private void save(String batchId, List<PriceRecordEntity> entities) {
+        storedDuplicates.markStored(batchId, entities);
+        // before they are visible, so a page filtered by error type never misses them
+        reportService.recordErrorMasks(batchId, entities);
+        long started = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            repository.saveAll(entities);
+            entityManager.flush();
+            // saved entities stay managed by the request scoped EntityManager unless detached
+            entityManager.clear();
+        });
+        metrics.recordStage(IngestionMetrics.Stage.PERSIST, System.nanoTime() - started);
+        naturalKeys.addAll(batchId, entities);
+        storedDuplicates.addStored(batchId, entities);
+        validationService.stored(entities);
+    }
+
+    private String upperCase(String value) {
+        return value == null ? null : value.toUpperCase();
+    }
+}
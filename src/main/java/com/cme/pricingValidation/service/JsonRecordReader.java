@@ -0,0 +1,70 @@
+package com.cme.pricingValidation.service;
+
+import com.cme.pricingValidation.model.PriceRecord;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads newline delimited JSON, one price record object per line.
+ */
+@Component
+public class JsonRecordReader {
+
+    private final ObjectReader reader;
+
+    public JsonRecordReader(ObjectMapper objectMapper) {
+        this.reader = objectMapper.readerFor(PriceRecord.class);
+    }
+
+    /**
+     * Lazily parses the input with Jackson's streaming parser: a record is only read when
+     * the returned stream asks for it, so the input can be larger than memory or be a
+     * continuous feed. Malformed input fails the stream with an {@link UncheckedIOException}.
+     * Closing the stream closes the input.
+     */
+    public Stream<PriceRecord> stream(InputStream in) throws IOException {
+        MappingIterator<PriceRecord> values = reader.readValues(in);
+
+        Iterator<PriceRecord> it = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return values.hasNextValue();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public PriceRecord next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                try {
+                    return values.nextValue();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(it, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        values.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+}
@@ -0,0 +1,144 @@
+package com.cme.pricingValidation.service;
+
+import com.cme.pricingValidation.entity.PriceRecordEntity;
+import com.cme.pricingValidation.model.PriceFields;
+import com.cme.pricingValidation.model.PriceRecordView;
+import com.cme.pricingValidation.repository.PriceRecordRepository;
+import com.cme.pricingValidation.util.ConcurrentFingerprintMap;
+import com.cme.pricingValidation.util.Fingerprint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * The id of the stored record holding each natural key (guid, trade date, price, exchange,
+ * product type), per batch. Filled as records are ingested and kept in step as they are
+ * updated and deleted, so a duplicate check is a lookup instead of a query.
+ *
+ * {@link #claim} is atomic: of two concurrent edits moving different records to the same
+ * key, only one gets it. A batch not yet in memory, e.g. after a restart with a persistent
+ * database, is read from storage on first use; one without stored records is only kept
+ * while {@link ReportService} retains it.
+ */
+@Service
+public class NaturalKeyIndex {
+    private static final Logger logger = LoggerFactory.getLogger(NaturalKeyIndex.class);
+
+    /**
+     * A natural key as its 128 bit fingerprint.
+     */
+    public record Key(long high, long low) {
+        public static Key of(PriceFields record) {
+            Fingerprint fingerprint = DuplicateTracker.naturalKey(new Fingerprint(), record);
+            return new Key(fingerprint.high(), fingerprint.low());
+        }
+    }
+
+    private final PriceRecordRepository repository;
+    // ReportService depends on this index, so it is looked up on use
+    private final ObjectProvider<ReportService> reportService;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Map<String,ConcurrentFingerprintMap> batches = new ConcurrentHashMap<>();
+
+    public NaturalKeyIndex(PriceRecordRepository repository, ObjectProvider<ReportService> reportService,
+                           PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.reportService = reportService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Starts the empty index of a new batch.
+     */
+    public void create(String batchId) {
+        batches.put(batchId, new ConcurrentFingerprintMap());
+    }
+
+    public void drop(String batchId) {
+        batches.remove(batchId);
+    }
+
+    /**
+     * Adds stored records of the batch. A record whose key is already taken keeps the
+     * key with the record that took it.
+     */
+    public void addAll(String batchId, Iterable<PriceRecordEntity> records) {
+        ConcurrentFingerprintMap keys = keys(batchId);
+        Fingerprint fingerprint = new Fingerprint();
+        for (PriceRecordEntity record : records) {
+            DuplicateTracker.naturalKey(fingerprint.reset(), record);
+            keys.putIfAbsent(fingerprint.high(), fingerprint.low(), record.getId());
+        }
+    }
+
+    /**
+     * Only a hint while the key may be claimed or released concurrently, see
+     * {@link ConcurrentFingerprintMap#get}; {@link #claim} is what decides who holds a key.
+     * @return the id of the record holding the key in the batch, or null
+     */
+    public Long find(String batchId, Key key) {
+        long id = keys(batchId).get(key.high(), key.low());
+        return id == ConcurrentFingerprintMap.ABSENT ? null : id;
+    }
+
+    /**
+     * Takes the key for the record unless another record holds it.
+     * @return whether the record holds the key now
+     */
+    public boolean claim(String batchId, Key key, long id) {
+        long holder = keys(batchId).putIfAbsent(key.high(), key.low(), id);
+        return holder == ConcurrentFingerprintMap.ABSENT || holder == id;
+    }
+
+    /**
+     * Gives up the key if the record holds it.
+     */
+    public void release(String batchId, Key key, long id) {
+        keys(batchId).remove(key.high(), key.low(), id);
+    }
+
+    /**
+     * Visits the key and record id of every record of the batch.
+     */
+    public void forEach(String batchId, ConcurrentFingerprintMap.EntryConsumer action) {
+        keys(batchId).forEach(action);
+    }
+
+    private ConcurrentFingerprintMap keys(String batchId) {
+        ConcurrentFingerprintMap keys = batches.get(batchId);
+        if (keys != null) return keys;
+        keys = load(batchId);
+        // an unknown or evicted batch is not kept, or its empty index would answer for it from then on
+        if (keys.size() == 0 && reportService.getObject().getBatch(batchId) == null) {
+            return keys;
+        }
+        ConcurrentFingerprintMap loaded = batches.putIfAbsent(batchId, keys);
+        return loaded != null ? loaded : keys;
+    }
+
+    private ConcurrentFingerprintMap load(String batchId) {
+        ConcurrentFingerprintMap keys = new ConcurrentFingerprintMap();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            Fingerprint fingerprint = new Fingerprint();
+            try (Stream<PriceRecordView> records = repository.streamViews(batchId)) {
+                Iterator<PriceRecordView> it = records.iterator();
+                while (it.hasNext()) {
+                    PriceRecordView record = it.next();
+                    DuplicateTracker.naturalKey(fingerprint.reset(), record);
+                    keys.putIfAbsent(fingerprint.high(), fingerprint.low(), record.getId());
+                }
+            }
+        });
+        logger.info("Loaded the natural keys of batch {}: {} records", batchId, keys.size());
+        return keys;
+    }
+}
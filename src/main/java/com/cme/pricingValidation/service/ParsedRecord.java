@@ -0,0 +1,117 @@
+package com.cme.pricingValidation.service;
+
+import com.cme.pricingValidation.model.Exchange;
+import com.cme.pricingValidation.model.PriceFields;
+import com.cme.pricingValidation.model.ProductType;
+
+/**
+ * Typed values of a {@link com.cme.pricingValidation.model.PriceRecord}, filled in by
+ * {@link FieldParser}. Instances are mutable so one can be reused for every row of a batch.
+ * <p>
+ * After {@link #reset(PriceFields)} each field is parsed when it is first read, so the
+ * rule that reads a field first, normally its own field rule, pays for parsing it and a
+ * field nobody reads is never parsed.
+ */
+public class ParsedRecord {
+
+    /** Number of decimals kept in {@link #getScaledPrice()}. */
+    public static final int PRICE_SCALE = 2;
+
+    public enum Status { OK, MISSING, INVALID }
+
+    long guid;
+    Status guidStatus;
+    int tradeDate;
+    Status tradeDateStatus;
+    long priceUnscaled;
+    int priceScale;
+    Status priceStatus;
+    Exchange exchange;
+    Status exchangeStatus;
+    ProductType productType;
+    Status productTypeStatus;
+    private PriceFields source;
+
+    /**
+     * Forgets the previous row and parses the fields of {@code record} as they are read.
+     */
+    public ParsedRecord reset(PriceFields record) {
+        source = record;
+        guidStatus = null;
+        tradeDateStatus = null;
+        priceStatus = null;
+        exchangeStatus = null;
+        productTypeStatus = null;
+        return this;
+    }
+
+    public long getGuid() {
+        getGuidStatus();
+        return guid;
+    }
+
+    public Status getGuidStatus() {
+        if (guidStatus == null) FieldParser.parseGuid(source.getInstrumentGuid(), this);
+        return guidStatus;
+    }
+
+    /** Trade date as days since 1970-01-01. */
+    public int getTradeDate() {
+        getTradeDateStatus();
+        return tradeDate;
+    }
+
+    public Status getTradeDateStatus() {
+        if (tradeDateStatus == null) FieldParser.parseTradeDate(source.getTradeDate(), this);
+        return tradeDateStatus;
+    }
+
+    /** Price digits without the decimal point, e.g. 12050 for "120.50". */
+    public long getPriceUnscaled() {
+        getPriceStatus();
+        return priceUnscaled;
+    }
+    /** Number of decimals written in the price, e.g. 2 for "120.50". */
+    public int getPriceScale() {
+        getPriceStatus();
+        return priceScale;
+    }
+
+    public Status getPriceStatus() {
+        if (priceStatus == null) FieldParser.parsePrice(source.getPrice(), this);
+        return priceStatus;
+    }
+
+    public Exchange getExchange() {
+        getExchangeStatus();
+        return exchange;
+    }
+
+    public Status getExchangeStatus() {
+        if (exchangeStatus == null) FieldParser.parseExchange(source.getExchange(), this);
+        return exchangeStatus;
+    }
+
+    public ProductType getProductType() {
+        getProductTypeStatus();
+        return productType;
+    }
+
+    public Status getProductTypeStatus() {
+        if (productTypeStatus == null) FieldParser.parseProductType(source.getProductType(), this);
+        return productTypeStatus;
+    }
+
+    /**
+     * Price in units of 10^-{@value #PRICE_SCALE}. Only meaningful when the price has at
+     * most {@value #PRICE_SCALE} decimals.
+     */
+    public long getScaledPrice() {
+        getPriceStatus();
+        long scaled = priceUnscaled;
+        for (int s = priceScale; s < PRICE_SCALE; s++) {
+            scaled *= 10;
+        }
+        return scaled;
+    }
+}
@@ -0,0 +1,257 @@
+package com.cme.pricingValidation.service;
+
+import com.cme.pricingValidation.entity.PriceRecordEntity;
+import com.cme.pricingValidation.model.ErrorCode;
+import com.cme.pricingValidation.model.PriceRecord;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Flags prices that do not fit the history of their instrument: further than
+ * {@code max-sigma} standard deviations from its mean price, or more than
+ * {@code max-jump-percent} away from its last price.
+ *
+ * The statistics learn from stored valid rows. The rows of an upload are gathered
+ * apart as its chunks are stored and added once the whole upload is {@link #finished}, so
+ * every row, whatever the chunk size and however the upload arrives, is checked against
+ * the uploads finished before it and never against rows of its own upload, and a single
+ * flagged price never shifts the baseline. Neither check runs before an instrument has
+ * {@code min-samples} prices. An edited or deleted record is {@link #removed taken out}
+ * again, so a corrected price is not held against the one it replaces.
+ *
+ * A real change in the level of a price would otherwise be flagged for good, so once
+ * {@code rebaseline-after} stored prices of an instrument in a row are flagged by this
+ * rule alone, all on the same side of its mean, its history restarts from those prices.
+ * Until it has {@code min-samples} prices again the instrument is not checked.
+ *
+ * Checks read the statistics without locking, from the copy published after each batch
+ * of changes (see {@link PriceStatistics}).
+ *
+ * The statistics live in memory across uploads and, when
+ * {@code state-file} is set, are saved there periodically and on shutdown and read back on
+ * startup, so history never has to be scanned again.
+ */
+@Component
+public class PriceAnomalyRule implements ValidationRule {
+    private static final Logger logger = LoggerFactory.getLogger(PriceAnomalyRule.class);
+    private static final int ANOMALIES = ErrorCode.PRICE_JUMP.bit() | ErrorCode.PRICE_OUTLIER.bit();
+
+    private final PriceStatistics statistics = new PriceStatistics();
+    // the rows of the uploads still being stored, by batch id
+    private final Map<String,PriceStatistics> pending = new ConcurrentHashMap<>();
+    // instruments whose last stored prices were flagged by this rule alone, all on the same side
+    private final Map<Long,Streak> streaks = new ConcurrentHashMap<>();
+    // the histories to restart once their upload is finished, by batch id
+    private final Map<String,Map<Long,PriceStatistics.Snapshot>> rebaselines = new ConcurrentHashMap<>();
+    private final ThreadLocal<PriceStatistics.Snapshot> snapshots = ThreadLocal.withInitial(PriceStatistics.Snapshot::new);
+    private final double maxSigma;
+    private final double maxJumpPercent;
+    private final long minSamples;
+    private final int rebaselineAfter;
+    private final Path stateFile;
+
+    /**
+     * @param maxSigma deviation from the mean, in standard deviations, above which a price is flagged; 0 disables it
+     * @param maxJumpPercent change from the last price, in percent, above which a price is flagged; 0 disables it
+     * @param minSamples prices of an instrument needed before it is checked
+     */
+    public PriceAnomalyRule(double maxSigma, double maxJumpPercent, long minSamples) {
+        this(maxSigma, maxJumpPercent, minSamples, 5, "");
+    }
+
+    @Autowired
+    public PriceAnomalyRule(@Value("${pricing.validation.rules.price-anomaly.max-sigma:6}") double maxSigma,
+                            @Value("${pricing.validation.rules.price-anomaly.max-jump-percent:50}") double maxJumpPercent,
+                            @Value("${pricing.validation.rules.price-anomaly.min-samples:30}") long minSamples,
+                            @Value("${pricing.validation.rules.price-anomaly.rebaseline-after:5}") int rebaselineAfter,
+                            @Value("${pricing.validation.rules.price-anomaly.state-file:}") String stateFile) {
+        this.maxSigma = maxSigma;
+        this.maxJumpPercent = maxJumpPercent;
+        this.minSamples = Math.max(2, minSamples);
+        this.rebaselineAfter = rebaselineAfter;
+        this.stateFile = stateFile == null || stateFile.isBlank() ? null : Path.of(stateFile.trim());
+    }
+
+    @Override
+    public String name() {
+        return "price-anomaly";
+    }
+
+    @Override
+    public int cost() {
+        return LOOKUP_COST;
+    }
+
+    @Override
+    public boolean needsRecord() {
+        return false;
+    }
+
+    @Override
+    public int check(PriceRecord record, ParsedRecord parsed, long today) {
+        if (!comparable(parsed)) {
+            return 0;
+        }
+        PriceStatistics.Snapshot history = snapshots.get();
+        if (!statistics.get(parsed.getGuid(), history) || history.getCount() < minSamples) {
+            return 0;
+        }
+        long price = parsed.getScaledPrice();
+        int errors = 0;
+        long last = history.getLastPrice();
+        // a backdated price is not compared with a later one
+        if (maxJumpPercent > 0 && history.hasLastPrice() && parsed.getTradeDate() >= history.getLastTradeDate()
+                && Math.abs(price - last) * 100.0 > maxJumpPercent * last) {
+            errors |= ErrorCode.PRICE_JUMP.bit();
+        }
+        double stdDev = history.getStdDev();
+        if (maxSigma > 0 && stdDev > 0
+                && Math.abs(price - history.getMean()) > maxSigma * stdDev) {
+            errors |= ErrorCode.PRICE_OUTLIER.bit();
+        }
+        return errors;
+    }
+
+    /**
+     * Gathers the valid records of their upload, records without a batch are learned at once.
+     */
+    @Override
+    public void stored(List<PriceRecordEntity> records) {
+        boolean learned = false;
+        for (PriceRecordEntity record : records) {
+            if (record.isValid()) {
+                // valid records have every field and a positive price with at most PRICE_SCALE decimals
+                PriceStatistics into = record.getBatchId() == null ? statistics
+                        : pending.computeIfAbsent(record.getBatchId(), id -> new PriceStatistics(16));
+                into.add(record.getInstrumentGuidValue(), price(record), (int) record.getTradeDateValue().toEpochDay());
+                learned |= into == statistics;
+                if (!streaks.isEmpty()) streaks.remove(record.getInstrumentGuidValue());
+            } else if (rebaselineAfter > 0 && (record.getErrorCodes() & ~ANOMALIES) == 0
+                    && (record.getErrorCodes() & ANOMALIES) != 0) {
+                learned |= flagged(record);
+            }
+        }
+        if (learned) statistics.publish();
+    }
+
+    /**
+     * Counts a price flagged by this rule alone towards restarting the history of its instrument.
+     * @return whether the history was restarted at once, as the record has no batch
+     */
+    private boolean flagged(PriceRecordEntity record) {
+        long guid = record.getInstrumentGuidValue();
+        long price = price(record);
+        PriceStatistics.Snapshot history = new PriceStatistics.Snapshot();
+        if (!statistics.get(guid, history)) return false;
+        int side = price > history.getMean() ? 1 : -1;
+        PriceStatistics.Snapshot[] restart = new PriceStatistics.Snapshot[1];
+        streaks.compute(guid, (key, streak) -> {
+            if (streak == null || streak.side != side) streak = new Streak(side);
+            streak.prices.add(price, (int) record.getTradeDateValue().toEpochDay());
+            if (streak.prices.getCount() < rebaselineAfter) return streak;
+            restart[0] = streak.prices;
+            return null;
+        });
+        if (restart[0] == null) return false;
+        if (record.getBatchId() == null) {
+            statistics.put(guid, restart[0]);
+            return true;
+        }
+        rebaselines.computeIfAbsent(record.getBatchId(), id -> new ConcurrentHashMap<>()).put(guid, restart[0]);
+        return false;
+    }
+
+    @Override
+    public void finished(String batchId) {
+        PriceStatistics upload = pending.remove(batchId);
+        if (upload != null) {
+            statistics.addAll(upload);
+        }
+        Map<Long,PriceStatistics.Snapshot> restarted = rebaselines.remove(batchId);
+        if (restarted != null) {
+            restarted.forEach(statistics::put);
+        }
+        statistics.publish();
+    }
+
+    @Override
+    public void removed(PriceRecordEntity record) {
+        if (!record.isValid()) return;
+        PriceStatistics upload = record.getBatchId() == null ? null : pending.get(record.getBatchId());
+        if (upload != null) {
+            upload.remove(record.getInstrumentGuidValue(), price(record), (int) record.getTradeDateValue().toEpochDay());
+        } else {
+            statistics.remove(record.getInstrumentGuidValue(), price(record), (int) record.getTradeDateValue().toEpochDay());
+            statistics.publish();
+        }
+    }
+
+    private static long price(PriceRecordEntity record) {
+        return record.getPriceValue().unscaledValue().longValue();
+    }
+
+    private static boolean comparable(ParsedRecord parsed) {
+        return parsed.getGuidStatus() == ParsedRecord.Status.OK
+                && parsed.getTradeDateStatus() == ParsedRecord.Status.OK
+                && parsed.getPriceStatus() == ParsedRecord.Status.OK
+                && parsed.getPriceUnscaled() > 0
+                && parsed.getPriceScale() <= ParsedRecord.PRICE_SCALE;
+    }
+
+    private static final class Streak {
+        final int side;
+        final PriceStatistics.Snapshot prices = new PriceStatistics.Snapshot();
+
+        Streak(int side) {
+            this.side = side;
+        }
+    }
+
+    public PriceStatistics getStatistics() {
+        return statistics;
+    }
+
+    @PostConstruct
+    void restore() {
+        if (stateFile == null || !Files.exists(stateFile)) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(stateFile)))) {
+            logger.info("Restored the price statistics of {} instruments from {}", statistics.readFrom(in), stateFile);
+        } catch (IOException e) {
+            logger.error("Could not read price statistics from {}, starting without history", stateFile, e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${pricing.validation.rules.price-anomaly.save-interval:PT5M}")
+    @PreDestroy
+    public void save() {
+        if (stateFile == null) return;
+        // written beside the file and moved over it, so a crash never leaves half a snapshot
+        Path temp = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                statistics.writeTo(out);
+            }
+            Files.move(temp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("Could not save price statistics to {}", stateFile, e);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.cme.pricingValidation.service;
+
+import com.cme.pricingValidation.entity.PriceRecordEntity;
+import com.cme.pricingValidation.model.Exchange;
+import com.cme.pricingValidation.model.PriceFields;
+import com.cme.pricingValidation.model.PriceRecord;
+import com.cme.pricingValidation.model.ProductType;
+import com.cme.pricingValidation.util.Fingerprint;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * A chunk of price records stored by column: guids, trade dates as epoch days and prices
+ * in units of 10^-{@value ParsedRecord#PRICE_SCALE} in primitive arrays, and exchange and
+ * product type as one byte codes into their enum values, which serve as the dictionaries.
+ * A row costs 22 bytes plus a reference instead of five strings.
+ *
+ * Each field is parsed once, when the row is added. A row with a field that does not parse,
+ * or a price with too many decimals, is kept as its original {@link PriceRecord} instead, so
+ * it can be reported and stored as it was written; in valid files these rows are rare.
+ * Not thread safe while rows are added; rows may be read from any thread afterwards.
+ */
+public final class PriceColumns {
+
+    private static final Exchange[] EXCHANGES = Exchange.values();
+    private static final ProductType[] PRODUCT_TYPES = ProductType.values();
+
+    private final long[] guids;
+    private final int[] tradeDates;
+    private final long[] prices;
+    private final byte[] exchanges;
+    private final byte[] productTypes;
+    // null for rows whose fields are all in the columns
+    private final PriceRecord[] raw;
+    private final ParsedRecord parsed = new ParsedRecord();
+    private int size;
+
+    public PriceColumns(int capacity) {
+        guids = new long[capacity];
+        tradeDates = new int[capacity];
+        prices = new long[capacity];
+        exchanges = new byte[capacity];
+        productTypes = new byte[capacity];
+        raw = new PriceRecord[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == guids.length;
+    }
+
+    public void clear() {
+        Arrays.fill(raw, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Parses the fields of a row into the columns.
+     * @return the index of the row
+     */
+    public int add(String guid, String tradeDate, String price, String exchange, String productType) {
+        int row = size++;
+        FieldParser.parseGuid(guid, parsed);
+        FieldParser.parseTradeDate(tradeDate, parsed);
+        FieldParser.parsePrice(price, parsed);
+        FieldParser.parseExchange(exchange, parsed);
+        FieldParser.parseProductType(productType, parsed);
+        if (parsed.guidStatus != ParsedRecord.Status.OK || parsed.tradeDateStatus != ParsedRecord.Status.OK
+                || parsed.priceStatus != ParsedRecord.Status.OK || parsed.priceScale > ParsedRecord.PRICE_SCALE
+                || parsed.exchangeStatus != ParsedRecord.Status.OK || parsed.productTypeStatus != ParsedRecord.Status.OK) {
+            raw[row] = new PriceRecord(guid, tradeDate, price, exchange, productType);
+            return row;
+        }
+        guids[row] = parsed.guid;
+        tradeDates[row] = parsed.tradeDate;
+        prices[row] = parsed.getScaledPrice();
+        exchanges[row] = (byte) parsed.exchange.ordinal();
+        productTypes[row] = (byte) parsed.productType.ordinal();
+        return row;
+    }
+
+    /**
+     * Fills {@code into} with the typed fields of a row. Rows kept as text are parsed as
+     * their fields are read, the others were parsed when they were added.
+     */
+    public ParsedRecord load(int row, ParsedRecord into) {
+        PriceRecord record = raw[row];
+        if (record != null) {
+            return into.reset(record);
+        }
+        into.guid = guids[row];
+        into.guidStatus = ParsedRecord.Status.OK;
+        into.tradeDate = tradeDates[row];
+        into.tradeDateStatus = ParsedRecord.Status.OK;
+        into.priceUnscaled = prices[row];
+        into.priceScale = ParsedRecord.PRICE_SCALE;
+        into.priceStatus = ParsedRecord.Status.OK;
+        into.exchange = EXCHANGES[exchanges[row]];
+        into.exchangeStatus = ParsedRecord.Status.OK;
+        into.productType = PRODUCT_TYPES[productTypes[row]];
+        into.productTypeStatus = ParsedRecord.Status.OK;
+        return into;
+    }
+
+    /**
+     * The row as text, written as it would be stored for rows held in the columns.
+     */
+    public PriceRecord record(int row) {
+        PriceRecord record = raw[row];
+        if (record != null) return record;
+        return new PriceRecord(Long.toString(guids[row]), LocalDate.ofEpochDay(tradeDates[row]).toString(),
+                BigDecimal.valueOf(prices[row], ParsedRecord.PRICE_SCALE).toPlainString(),
+                EXCHANGES[exchanges[row]].name(), PRODUCT_TYPES[productTypes[row]].name());
+    }
+
+    /**
+     * Adds the natural key of a row to the fingerprint, the same as
+     * {@link DuplicateTracker#naturalKey(Fingerprint, PriceFields, ParsedRecord)} gives for the row as text.
+     */
+    public Fingerprint naturalKey(int row, Fingerprint fingerprint) {
+        PriceRecord record = raw[row];
+        if (record != null) {
+            return DuplicateTracker.naturalKey(fingerprint, record);
+        }
+        return fingerprint
+                .add(guids[row])
+                .add(tradeDates[row])
+                .add(prices[row])
+                .add(exchanges[row])
+                .add(productTypes[row]);
+    }
+
+    /**
+     * The row as a new entity to store.
+     */
+    public PriceRecordEntity entity(int row, int rowNumber, int errorCodes) {
+        PriceRecord record = raw[row];
+        if (record != null) {
+            return new PriceRecordEntity(record.getInstrumentGuid(), record.getTradeDate(), record.getPrice(),
+                    upperCase(record.getExchange()), upperCase(record.getProductType()), rowNumber, errorCodes == 0, errorCodes);
+        }
+        return new PriceRecordEntity(guids[row], LocalDate.ofEpochDay(tradeDates[row]),
+                BigDecimal.valueOf(prices[row], ParsedRecord.PRICE_SCALE),
+                EXCHANGES[exchanges[row]], PRODUCT_TYPES[productTypes[row]], rowNumber, errorCodes == 0, errorCodes);
+    }
+
+    private static String upperCase(String value) {
+        return value == null ? null : value.toUpperCase();
+    }
+}
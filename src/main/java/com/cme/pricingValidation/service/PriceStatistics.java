@@ -0,0 +1,356 @@
+package com.cme.pricingValidation.service;
+
+import com.cme.pricingValidation.util.Fingerprint;
+import com.cme.pricingValidation.util.LongIntTable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Running price statistics per instrument guid: the count, mean and variance of the prices
+ * (Welford's online algorithm, so each price is an O(1) update and history is never read
+ * again) and the last price with its trade date.
+ *
+ * Prices can be taken out again when their record is edited or deleted, and the
+ * statistics of another instance merged in (Chan et al.'s pairwise update), so an upload
+ * can be learned apart and added once it is complete.
+ *
+ * The guids are spread over lock stripes, each holding a {@link LongIntTable} from guid to
+ * slot and the statistics in parallel primitive arrays, so millions of instruments need no
+ * per-instrument objects and threads working on different instruments rarely meet.
+ *
+ * Lookups take no lock: {@link #get} reads an immutable copy of the stripe, which writers
+ * replace when they {@link #publish}. A write is therefore only seen by lookups once it is
+ * published, and publishing copies each stripe written since, so writers publish once per
+ * batch of writes, such as a finished upload, rather than per price. The copies double
+ * the memory held per instrument.
+ */
+public class PriceStatistics {
+
+    private static final int STRIPE_BITS = 6;
+    private static final int SNAPSHOT_VERSION = 1;
+    // the trade date of a last price that was taken out
+    private static final int NO_TRADE_DATE = Integer.MIN_VALUE;
+
+    /**
+     * The statistics of one instrument, copied out of the table.
+     */
+    public static final class Snapshot {
+        long count;
+        double mean;
+        double m2;
+        long lastPrice;
+        int lastTradeDate;
+
+        public long getCount() { return count; }
+        public double getMean() { return mean; }
+
+        /** Sample standard deviation, 0 below two prices. */
+        public double getStdDev() {
+            return count < 2 ? 0 : Math.sqrt(m2 / (count - 1));
+        }
+
+        /** Whether there is a last price, it is gone once taken out until the next one is added. */
+        public boolean hasLastPrice() { return lastTradeDate != NO_TRADE_DATE; }
+
+        /** Price in units of 10^-{@value ParsedRecord#PRICE_SCALE}. */
+        public long getLastPrice() { return lastPrice; }
+        /** Trade date of the last price, as days since 1970-01-01. */
+        public int getLastTradeDate() { return lastTradeDate; }
+
+        /**
+         * Adds a price, as {@link PriceStatistics#add} does, to gather statistics apart.
+         */
+        void add(long price, int tradeDate) {
+            if (count == 0) lastTradeDate = NO_TRADE_DATE;
+            long n = ++count;
+            double delta = price - mean;
+            mean += delta / n;
+            m2 += delta * (price - mean);
+            if (tradeDate >= lastTradeDate) {
+                lastPrice = price;
+                lastTradeDate = tradeDate;
+            }
+        }
+    }
+
+    // what lookups read: a copy of a stripe that is never written after it is published
+    private static final class View {
+        static final View EMPTY = new View(new LongIntTable(0), new long[0], new double[0], new double[0],
+                new long[0], new int[0]);
+
+        final LongIntTable slots;
+        final long[] counts;
+        final double[] means;
+        final double[] m2s;
+        final long[] lastPrices;
+        final int[] lastTradeDates;
+
+        View(LongIntTable slots, long[] counts, double[] means, double[] m2s, long[] lastPrices, int[] lastTradeDates) {
+            this.slots = slots;
+            this.counts = counts;
+            this.means = means;
+            this.m2s = m2s;
+            this.lastPrices = lastPrices;
+            this.lastTradeDates = lastTradeDates;
+        }
+    }
+
+    private static final class Stripe {
+        final LongIntTable slots;
+        long[] guids;
+        long[] counts;
+        double[] means;
+        double[] m2s;
+        long[] lastPrices;
+        int[] lastTradeDates;
+        int size;
+        // written since the view was last published
+        boolean dirty;
+        volatile View view = View.EMPTY;
+
+        Stripe(int capacity) {
+            slots = new LongIntTable(capacity);
+            guids = new long[capacity];
+            counts = new long[capacity];
+            means = new double[capacity];
+            m2s = new double[capacity];
+            lastPrices = new long[capacity];
+            lastTradeDates = new int[capacity];
+        }
+
+        void publish() {
+            if (!dirty) return;
+            view = new View(slots.copy(), Arrays.copyOf(counts, size), Arrays.copyOf(means, size),
+                    Arrays.copyOf(m2s, size), Arrays.copyOf(lastPrices, size), Arrays.copyOf(lastTradeDates, size));
+            dirty = false;
+        }
+
+        // the slot of the guid, to be written, added when absent
+        int slotOf(long guid) {
+            dirty = true;
+            int slot = slots.get(guid);
+            if (slot != LongIntTable.ABSENT) return slot - 1;
+            if (size == guids.length) {
+                int capacity = size * 2;
+                guids = Arrays.copyOf(guids, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+                means = Arrays.copyOf(means, capacity);
+                m2s = Arrays.copyOf(m2s, capacity);
+                lastPrices = Arrays.copyOf(lastPrices, capacity);
+                lastTradeDates = Arrays.copyOf(lastTradeDates, capacity);
+            }
+            guids[size] = guid;
+            lastTradeDates[size] = NO_TRADE_DATE;
+            slots.put(guid, size + 1);
+            return size++;
+        }
+    }
+
+    private final Stripe[] stripes = new Stripe[1 << STRIPE_BITS];
+
+    public PriceStatistics() {
+        this(256);
+    }
+
+    /**
+     * @param stripeCapacity instruments each stripe holds before it grows, small for short lived instances
+     */
+    public PriceStatistics(int stripeCapacity) {
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(stripeCapacity);
+        }
+    }
+
+    private Stripe stripe(long guid) {
+        return stripes[(int) (Fingerprint.fmix64(guid) >>> (64 - STRIPE_BITS))];
+    }
+
+    /**
+     * Copies the published statistics of the instrument into {@code into}, without locking.
+     * @return false when no price of the instrument was published yet
+     */
+    public boolean get(long guid, Snapshot into) {
+        View v = stripe(guid).view;
+        int slot = v.slots.get(guid);
+        if (slot == LongIntTable.ABSENT) return false;
+        slot--;
+        into.count = v.counts[slot];
+        into.mean = v.means[slot];
+        into.m2 = v.m2s[slot];
+        into.lastPrice = v.lastPrices[slot];
+        into.lastTradeDate = v.lastTradeDates[slot];
+        return true;
+    }
+
+    /**
+     * Makes every write made so far visible to {@link #get}, copying the stripes written
+     * since the last call.
+     */
+    public void publish() {
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                s.publish();
+            }
+        }
+    }
+
+    /**
+     * Adds a price of the instrument. The last price only moves forward in trade date.
+     * @param price in units of 10^-{@value ParsedRecord#PRICE_SCALE}
+     * @param tradeDate as days since 1970-01-01
+     */
+    public void add(long guid, long price, int tradeDate) {
+        Stripe s = stripe(guid);
+        synchronized (s) {
+            int slot = s.slotOf(guid);
+            long n = ++s.counts[slot];
+            double delta = price - s.means[slot];
+            s.means[slot] += delta / n;
+            s.m2s[slot] += delta * (price - s.means[slot]);
+            if (tradeDate >= s.lastTradeDates[slot]) {
+                s.lastPrices[slot] = price;
+                s.lastTradeDates[slot] = tradeDate;
+            }
+        }
+    }
+
+    /**
+     * Takes out a price added before. When it is the last price the instrument has no last
+     * price until the next one is added, as the one before it is not kept.
+     */
+    public void remove(long guid, long price, int tradeDate) {
+        Stripe s = stripe(guid);
+        synchronized (s) {
+            int slot = s.slots.get(guid);
+            if (slot == LongIntTable.ABSENT) return;
+            slot--;
+            long n = s.counts[slot];
+            if (n == 0) return;
+            s.dirty = true;
+            if (n == 1) {
+                s.means[slot] = 0;
+                s.m2s[slot] = 0;
+            } else {
+                double mean = s.means[slot];
+                double previous = (n * mean - price) / (n - 1);
+                s.m2s[slot] = Math.max(0, s.m2s[slot] - (price - mean) * (price - previous));
+                s.means[slot] = previous;
+            }
+            s.counts[slot] = n - 1;
+            if (s.lastPrices[slot] == price && s.lastTradeDates[slot] == tradeDate) {
+                s.lastTradeDates[slot] = NO_TRADE_DATE;
+            }
+        }
+    }
+
+    /**
+     * Replaces the statistics of the instrument, such as to restart its history from
+     * prices gathered apart.
+     */
+    public void put(long guid, Snapshot statistics) {
+        Stripe s = stripe(guid);
+        synchronized (s) {
+            int slot = s.slotOf(guid);
+            s.counts[slot] = statistics.count;
+            s.means[slot] = statistics.mean;
+            s.m2s[slot] = statistics.m2;
+            s.lastPrices[slot] = statistics.lastPrice;
+            s.lastTradeDates[slot] = statistics.count == 0 ? NO_TRADE_DATE : statistics.lastTradeDate;
+        }
+    }
+
+    /**
+     * Adds every price of {@code other}, which must not change meanwhile.
+     */
+    public void addAll(PriceStatistics other) {
+        for (Stripe o : other.stripes) {
+            synchronized (o) {
+                for (int i = 0; i < o.size; i++) {
+                    merge(o.guids[i], o.counts[i], o.means[i], o.m2s[i], o.lastPrices[i], o.lastTradeDates[i]);
+                }
+            }
+        }
+    }
+
+    private void merge(long guid, long count, double mean, double m2, long lastPrice, int lastTradeDate) {
+        Stripe s = stripe(guid);
+        synchronized (s) {
+            int slot = s.slotOf(guid);
+            long n = s.counts[slot] + count;
+            if (count > 0) {
+                double delta = mean - s.means[slot];
+                s.m2s[slot] += m2 + delta * delta * s.counts[slot] * count / n;
+                s.means[slot] += delta * count / n;
+                s.counts[slot] = n;
+            }
+            if (lastTradeDate != NO_TRADE_DATE && lastTradeDate >= s.lastTradeDates[slot]) {
+                s.lastPrices[slot] = lastPrice;
+                s.lastTradeDates[slot] = lastTradeDate;
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                size += s.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Writes every instrument's statistics. Stripes are copied one at a time, so prices
+     * added meanwhile may or may not be included.
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(SNAPSHOT_VERSION);
+        out.writeInt(stripes.length);
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                out.writeInt(s.size);
+                for (int i = 0; i < s.size; i++) {
+                    out.writeLong(s.guids[i]);
+                    out.writeLong(s.counts[i]);
+                    out.writeDouble(s.means[i]);
+                    out.writeDouble(s.m2s[i]);
+                    out.writeLong(s.lastPrices[i]);
+                    out.writeInt(s.lastTradeDates[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the statistics of the instruments in the snapshot and publishes them.
+     * @return the number of instruments read
+     */
+    public int readFrom(DataInputStream in) throws IOException {
+        int version = in.readInt();
+        if (version != SNAPSHOT_VERSION) {
+            throw new IOException("Unsupported price statistics snapshot version " + version);
+        }
+        int read = 0;
+        for (int stripes = in.readInt(); stripes > 0; stripes--) {
+            for (int entries = in.readInt(); entries > 0; entries--) {
+                long guid = in.readLong();
+                Stripe s = stripe(guid);
+                synchronized (s) {
+                    int slot = s.slotOf(guid);
+                    s.counts[slot] = in.readLong();
+                    s.means[slot] = in.readDouble();
+                    s.m2s[slot] = in.readDouble();
+                    s.lastPrices[slot] = in.readLong();
+                    s.lastTradeDates[slot] = in.readInt();
+                }
+                read++;
+            }
+        }
+        publish();
+        return read;
+    }
+}
@@ -0,0 +1,244 @@
+package com.cme.pricingValidation.service;
+
+import com.cme.pricingValidation.model.Exchange;
+import com.cme.pricingValidation.model.ProductType;
+import com.cme.pricingValidation.util.LongIntTable;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory instrument master: the exchange and product type each instrument guid is
+ * listed on, loaded from a CSV file ({@code pricing.reference.file}) or a database table
+ * ({@code pricing.reference.table}) with the columns instrument_guid, exchange and
+ * product_type.
+ *
+ * Each load builds a new {@link Snapshot} and publishes it with a single volatile write,
+ * so validation threads read a complete snapshot without locking while a refresh runs,
+ * and a failed load keeps the previous one. Without a configured source no snapshot is
+ * loaded and the reference rules are skipped.
+ */
+@Service
+public class ReferenceDataIndex {
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceDataIndex.class);
+
+    private static final Pattern TABLE_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)?");
+    private static final int FETCH_SIZE = 10_000;
+
+    // a listing packs the exchange and product type ordinals, each offset by one so that
+    // 0 means "not given", below a bit that keeps the value positive when both are absent
+    private static final int LISTED = 1 << 16;
+    private static final int FIELD_MASK = 0xFF;
+    private static final int PRODUCT_SHIFT = 8;
+
+    /**
+     * One loaded instrument master. Never modified once published.
+     */
+    public static final class Snapshot {
+        private final LongIntTable listings;
+        private final String source;
+        private final Instant loadedAt;
+        private final int skipped;
+        private final long version;
+
+        private Snapshot(LongIntTable listings, String source, Instant loadedAt, int skipped, long version) {
+            this.listings = listings;
+            this.source = source;
+            this.loadedAt = loadedAt;
+            this.skipped = skipped;
+            this.version = version;
+        }
+
+        public boolean isLoaded() {
+            return listings != null;
+        }
+
+        /**
+         * @return the packed listing of the instrument, or {@link LongIntTable#ABSENT} when it is unknown
+         */
+        public int listing(long guid) {
+            return listings == null ? LongIntTable.ABSENT : listings.get(guid);
+        }
+
+        public String getSource() { return source; }
+        public Instant getLoadedAt() { return loadedAt; }
+        public int getInstruments() { return listings == null ? 0 : listings.size(); }
+        /** Rows of the source that were ignored because a value could not be parsed. */
+        public int getSkipped() { return skipped; }
+
+        @JsonIgnore
+        long getVersion() { return version; }
+    }
+
+    private static final Snapshot NOT_LOADED = new Snapshot(null, null, null, 0, 0);
+
+    private final Path file;
+    private final String table;
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Snapshot snapshot = NOT_LOADED;
+
+    /**
+     * An index without a source, so no reference rules apply.
+     */
+    public ReferenceDataIndex() {
+        this("", "", null);
+    }
+
+    @Autowired
+    public ReferenceDataIndex(@Value("${pricing.reference.file:}") String file,
+                              @Value("${pricing.reference.table:}") String table,
+                              JdbcTemplate jdbcTemplate) {
+        this.file = file == null || file.isBlank() ? null : Path.of(file.trim());
+        this.table = table == null || table.isBlank() ? null : table.trim();
+        if (this.table != null && !TABLE_NAME.matcher(this.table).matches()) {
+            throw new IllegalArgumentException("Invalid reference data table name: " + this.table);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public static Exchange exchangeOf(int listing) {
+        int code = listing & FIELD_MASK;
+        return code == 0 ? null : Exchange.values()[code - 1];
+    }
+
+    public static ProductType productTypeOf(int listing) {
+        int code = (listing >>> PRODUCT_SHIFT) & FIELD_MASK;
+        return code == 0 ? null : ProductType.values()[code - 1];
+    }
+
+    static int listing(Exchange exchange, ProductType productType) {
+        return LISTED
+                | (exchange == null ? 0 : exchange.ordinal() + 1)
+                | (productType == null ? 0 : productType.ordinal() + 1) << PRODUCT_SHIFT;
+    }
+
+    @Scheduled(fixedDelayString = "${pricing.reference.refresh-interval:PT5M}")
+    public void scheduledRefresh() {
+        try {
+            refresh(false);
+        } catch (RuntimeException e) {
+            logger.error("Could not refresh reference data, keeping the loaded snapshot", e);
+        }
+    }
+
+    /**
+     * Loads the configured source and swaps it in. A file that has not been modified since
+     * it was loaded is only read again when {@code force} is set.
+     * @return the snapshot in use afterwards
+     */
+    public synchronized Snapshot refresh(boolean force) {
+        Snapshot next;
+        if (file != null) {
+            next = loadFile(force);
+        } else if (table != null) {
+            next = loadTable();
+        } else {
+            return snapshot;
+        }
+        if (next != snapshot) {
+            snapshot = next;
+            logger.info("Loaded {} instruments from {} ({} rows skipped)",
+                    next.getInstruments(), next.getSource(), next.getSkipped());
+        }
+        return next;
+    }
+
+    private Snapshot loadFile(boolean force) {
+        try {
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            Snapshot current = snapshot;
+            if (!force && current.isLoaded() && current.getVersion() == modified) {
+                return current;
+            }
+            try (InputStream in = Files.newInputStream(file)) {
+                return load(in, file.toString(), modified);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read reference data file " + file, e);
+        }
+    }
+
+    /**
+     * Reads a CSV instrument master. The header names the columns, in any order; the
+     * product_type column is optional.
+     */
+    static Snapshot load(InputStream in, String source, long version) throws IOException {
+        try (CsvTokenizer tokenizer = new CsvTokenizer(in)) {
+            if (!tokenizer.nextRow()) {
+                throw new IllegalArgumentException("Reference data file " + source + " is empty");
+            }
+            int guidColumn = -1, exchangeColumn = -1, productColumn = -1;
+            for (int i = 0; i < tokenizer.fieldCount(); i++) {
+                switch (tokenizer.field(i).toLowerCase(Locale.ROOT).replace("_", "")) {
+                    case "instrumentguid", "guid" -> guidColumn = i;
+                    case "exchange" -> exchangeColumn = i;
+                    case "producttype" -> productColumn = i;
+                    default -> {}
+                }
+            }
+            if (guidColumn < 0 || exchangeColumn < 0) {
+                throw new IllegalArgumentException("Reference data file " + source
+                        + " needs instrument_guid and exchange columns");
+            }
+            Builder builder = new Builder();
+            while (tokenizer.nextRow()) {
+                builder.add(tokenizer.field(guidColumn), tokenizer.field(exchangeColumn),
+                        productColumn < 0 ? null : tokenizer.field(productColumn));
+            }
+            return builder.build(source, version);
+        }
+    }
+
+    private Snapshot loadTable() {
+        Builder builder = new Builder();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "select instrument_guid, exchange, product_type from " + table);
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) rs -> builder.add(rs.getString(1), rs.getString(2), rs.getString(3)));
+        return builder.build("table " + table, 0);
+    }
+
+    private static final class Builder {
+        private final LongIntTable listings = new LongIntTable(1 << 16);
+        private final ParsedRecord parsed = new ParsedRecord();
+        private int skipped;
+
+        void add(String guid, String exchange, String productType) {
+            FieldParser.parseGuid(guid, parsed);
+            Exchange ex = Exchange.fromCode(exchange);
+            ProductType type = ProductType.fromCode(productType);
+            if (parsed.getGuidStatus() != ParsedRecord.Status.OK || ex == null
+                    || (type == null && productType != null && !productType.isBlank())) {
+                skipped++;
+                return;
+            }
+            listings.put(parsed.getGuid(), listing(ex, type));
+        }
+
+        Snapshot build(String source, long version) {
+            return new Snapshot(listings, source, Instant.now(), skipped, version);
+        }
+    }
+}
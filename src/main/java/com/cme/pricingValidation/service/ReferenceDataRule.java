@@ -0,0 +1,59 @@
+package com.cme.pricingValidation.service;
+
+import com.cme.pricingValidation.model.ErrorCode;
+import com.cme.pricingValidation.model.Exchange;
+import com.cme.pricingValidation.model.PriceRecord;
+import com.cme.pricingValidation.model.ProductType;
+import com.cme.pricingValidation.util.LongIntTable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Checks that the instrument is in the instrument master and is listed on the exchange
+ * and as the product type of the record. Passes every record while no master is loaded.
+ */
+@Component
+public class ReferenceDataRule implements ValidationRule {
+
+    private final ReferenceDataIndex referenceData;
+
+    public ReferenceDataRule(ReferenceDataIndex referenceData) {
+        this.referenceData = referenceData;
+    }
+
+    @Override
+    public String name() {
+        return "reference-data";
+    }
+
+    @Override
+    public int cost() {
+        return LOOKUP_COST;
+    }
+
+    @Override
+    public boolean needsRecord() {
+        return false;
+    }
+
+    @Override
+    public int check(PriceRecord record, ParsedRecord parsed, long today) {
+        ReferenceDataIndex.Snapshot reference = referenceData.getSnapshot();
+        if (parsed.getGuidStatus() != ParsedRecord.Status.OK || !reference.isLoaded()) {
+            return 0;
+        }
+        int listing = reference.listing(parsed.getGuid());
+        if (listing == LongIntTable.ABSENT) {
+            return ErrorCode.UNKNOWN_INSTRUMENT.bit();
+        }
+        int errors = 0;
+        Exchange listedExchange = ReferenceDataIndex.exchangeOf(listing);
+        if (parsed.getExchange() != null && listedExchange != null && parsed.getExchange() != listedExchange) {
+            errors |= ErrorCode.EXCHANGE_MISMATCH.bit();
+        }
+        ProductType listedType = ReferenceDataIndex.productTypeOf(listing);
+        if (parsed.getProductType() != null && listedType != null && parsed.getProductType() != listedType) {
+            errors |= ErrorCode.PRODUCT_TYPE_MISMATCH.bit();
+        }
+        return errors;
+    }
+}
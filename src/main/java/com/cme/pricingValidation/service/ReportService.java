@@ -1,19 +1,352 @@
 package com.cme.pricingValidation.service;
 
-import com.cme.pricingValidation.model.ValidationResult;
+import com.cme.pricingValidation.entity.PriceRecordEntity;
+import com.cme.pricingValidation.model.ErrorCode;
+import com.cme.pricingValidation.model.PriceRecordView;
+import com.cme.pricingValidation.model.UploadBatch;
+import com.cme.pricingValidation.repository.PriceRecordRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
+/**
+ * Keeps track of the uploads whose records are stored, and reports on the records of an upload.
+ * Uploads are kept up to a count and for a time to live; evicting one deletes its records.
+ */
 @Service
 public class ReportService {
+    private static final Logger logger = LoggerFactory.getLogger(ReportService.class);
 
-    private final List<ValidationResult> reportStore = new ArrayList<>();
+    private final Map<String,UploadBatch> batches = new ConcurrentHashMap<>();
+    private final PriceRecordRepository repository;
+    private final EntityManager entityManager;
+    private final NaturalKeyIndex naturalKeys;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int maxBatches;
+    private final Duration batchTtl;
 
-    public void saveResult(List<ValidationResult> results){
-        reportStore.clear();
-        reportStore.addAll(results);
+    public ReportService(PriceRecordRepository repository, EntityManager entityManager,
+                         PlatformTransactionManager transactionManager, NaturalKeyIndex naturalKeys,
+                         @Value("${pricing.batches.max-retained:20}") int maxBatches,
+                         @Value("${pricing.batches.ttl:PT24H}") Duration batchTtl) {
+        this.repository = repository;
+        this.entityManager = entityManager;
+        this.naturalKeys = naturalKeys;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.maxBatches = maxBatches;
+        this.batchTtl = batchTtl;
     }
 
+    /**
+     * Registers a new upload, evicting old ones beyond the limits.
+     */
+    public UploadBatch startBatch(String id) {
+        UploadBatch batch = new UploadBatch(id);
+        if (batches.putIfAbsent(id, batch) != null) {
+            throw new IllegalStateException("Batch " + id + " already exists");
+        }
+        evictBatches();
+        return batch;
+    }
+
+    /**
+     * @param summary the upload summary, or null when the upload failed part way
+     */
+    public void finishBatch(String id, Map<String,Object> summary) {
+        UploadBatch batch = batches.get(id);
+        if (batch != null) batch.finish(summary);
+    }
+
+    /**
+     * Reopens a finished batch so that it can be changed, see {@link UploadBatch#reopen()}.
+     * A reopened batch is not evicted until it is finished again.
+     * @return false when the batch is unknown or not finished
+     */
+    public boolean reopenBatch(String id) {
+        synchronized (batches) {
+            UploadBatch batch = batches.get(id);
+            if (batch == null || !batch.isFinished()) return false;
+            batch.reopen();
+            return true;
+        }
+    }
+
+    /**
+     * Remembers the error masks of the invalid records about to be stored in the batch, see
+     * {@link #errorMasks}.
+     */
+    public void recordErrorMasks(String batchId, Collection<PriceRecordEntity> records) {
+        UploadBatch batch = batches.get(batchId);
+        if (batch == null) return;
+        for (PriceRecordEntity record : records) {
+            if (!record.isValid()) batch.addErrorMask(record.getErrorCodes());
+        }
+    }
+
+    /**
+     * The error masks containing the code among the invalid records of the batch. Those of a
+     * retained batch are known from storing its records; others are read from the table.
+     */
+    public List<Integer> errorMasks(String batchId, ErrorCode code) {
+        UploadBatch batch = batches.get(batchId);
+        List<Integer> all = batch != null ? batch.errorMasks() : repository.findInvalidErrorMasks(batchId);
+        List<Integer> masks = new ArrayList<>();
+        for (Integer mask : all) {
+            if (code.isSet(mask)) masks.add(mask);
+        }
+        return masks;
+    }
+
+    public UploadBatch getBatch(String id) {
+        return batches.get(id);
+    }
+
+    /**
+     * The retained uploads, newest first.
+     */
+    public List<UploadBatch> batches() {
+        return batches.values().stream()
+                .sorted(Comparator.comparing(UploadBatch::getCreatedAt).reversed())
+                .toList();
+    }
+
+    /**
+     * The batch to report on: the requested one, or else the last upload that completed,
+     * which stays so while a delta is applied to it.
+     * @return the batch id, or null when no upload has completed
+     */
+    public String resolveBatchId(String requested) {
+        if (requested != null) return requested;
+        return batches.values().stream()
+                // a summary is only set when finishing, along with the finish time
+                .filter(b -> b.getSummary() != null && b.getFinishedAt() != null)
+                .max(Comparator.comparing(UploadBatch::getFinishedAt))
+                .map(UploadBatch::getId)
+                .orElse(null);
+    }
+
+    /**
+     * Drops the finished uploads that expired or exceed the retained count, oldest first,
+     * and deletes their records. Uploads still being stored are never evicted.
+     */
+    @Scheduled(fixedDelayString = "${pricing.batches.eviction-interval:PT1M}")
+    public void evictBatches() {
+        List<UploadBatch> evicted = new ArrayList<>();
+        synchronized (batches) {
+            Instant expiry = Instant.now().minus(batchTtl);
+            int excess = batches.size() - maxBatches;
+            List<UploadBatch> finished = batches.values().stream()
+                    .filter(UploadBatch::isFinished)
+                    .sorted(Comparator.comparing(UploadBatch::getCreatedAt))
+                    .toList();
+            for (UploadBatch batch : finished) {
+                if (excess > 0 || batch.getFinishedAt().isBefore(expiry)) {
+                    batches.remove(batch.getId());
+                    evicted.add(batch);
+                    excess--;
+                }
+            }
+        }
+        for (UploadBatch batch : evicted) {
+            int deleted = repository.deleteByBatchId(batch.getId());
+            naturalKeys.drop(batch.getId());
+            logger.info("Evicted batch {} and its {} records", batch.getId(), deleted);
+        }
+    }
+
+    public static class Counts {
+        private final long valid;
+        private final long invalid;
+
+        Counts(long valid, long invalid) {
+            this.valid = valid;
+            this.invalid = invalid;
+        }
+
+        public long getTotal() { return valid + invalid; }
+        public long getValid() { return valid; }
+        public long getInvalid() { return invalid; }
+    }
+
+    /**
+     * Valid and invalid record counts, computed by the database without loading the records.
+     */
+    public Counts storedCounts(String batchId){
+        long valid = 0, invalid = 0;
+        for (PriceRecordRepository.ValidityCount c : repository.countByValidity(batchId)) {
+            if (c.getValid()) valid = c.getCount();
+            else invalid = c.getCount();
+        }
+        return new Counts(valid, invalid);
+    }
+
+    public List<Integer> invalidRowNumbers(String batchId){
+        return repository.findInvalidRowNumbers(batchId);
+    }
+
+    /**
+     * Counts of the stored records of a batch, with the invalid row numbers and the number
+     * of records having each error under "errorCounts".
+     * @param messages whether to list the errors of every invalid record under "errors" too,
+     *                 which reads each invalid record
+     */
+    public Map<String,Object> storedSummary(String batchId, boolean messages){
+        Counts counts = storedCounts(batchId);
+        Map<String,Object> sum = new HashMap<>();
+        sum.put("batchId",batchId);
+        sum.put("total",counts.getTotal());
+        sum.put("valid",counts.getValid());
+        sum.put("invalid",counts.getInvalid());
+        sum.put("invalidRows",invalidRowNumbers(batchId));
+        sum.put("errorCounts",errorCounts(batchId));
+        if (messages) {
+            sum.put("errors",errorMessages(batchId));
+        }
+        return sum;
+    }
+
+    private List<String> errorMessages(String batchId){
+        List<String> errors = new ArrayList<>();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<PriceRecordView> records = repository.streamInvalidViews(batchId)) {
+                records.forEach(record -> errors.add(record.getErrors()));
+            }
+        });
+        return errors;
+    }
+
+    /**
+     * Number of stored records having each error, in error code order.
+     */
+    public Map<ErrorCode,Long> errorCounts(String batchId){
+        long[] counts = new long[ErrorCode.values().length];
+        for (PriceRecordRepository.ErrorCodesCount c : repository.countByErrorCodes(batchId)) {
+            for (ErrorCode code : ErrorCode.values()) {
+                if (code.isSet(c.getErrorCodes())) counts[code.ordinal()] += c.getCount();
+            }
+        }
+        Map<ErrorCode,Long> byCode = new LinkedHashMap<>();
+        for (ErrorCode code : ErrorCode.values()) {
+            if (counts[code.ordinal()] > 0) byCode.put(code, counts[code.ordinal()]);
+        }
+        return byCode;
+    }
+
+    /**
+     * Writes the CSV validation report of a batch: the summary, then one line per invalid
+     * record, or per record when {@code full} is set. The records are read through a cursor and
+     * written as they arrive, so memory use does not grow with the number of records.
+     * The stream is flushed but not closed.
+     */
+    public void writeReport(OutputStream out, String batchId, boolean full) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try {
+                    writeReport(writer, batchId, full);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private void writeReport(Writer w, String batchId, boolean full) throws IOException {
+        Counts counts = storedCounts(batchId);
+        double percentAcc = counts.getTotal() == 0 ? 0.0 : ((double) counts.getValid() / counts.getTotal()) * 100d;
+
+        w.write("Summary\n");
+        w.write("Total Records," + counts.getTotal() + "\n");
+        w.write("Valid Records," + counts.getValid() + "\n");
+        w.write("Invalid Records," + counts.getInvalid() + "\n");
+        w.write("Valid Percentage, " + String.format("%.2f", percentAcc) + "\n");
+
+        w.write("Invalid Row Numbers,");
+        try (Stream<Integer> rows = repository.streamInvalidRowNumbers(batchId)) {
+            Iterator<Integer> it = rows.iterator();
+            if (!it.hasNext()) {
+                w.write("None");
+            }
+            while (it.hasNext()) {
+                w.write(String.valueOf(it.next()));
+                if (it.hasNext()) w.write(' ');
+            }
+        }
+        w.write("\n");
+
+        w.write("\n");
+        if (full) {
+            w.write("Records Detail\n");
+            w.write("rowNumber,instrumentGuid,tradeDate,price,exchange,productType,valid,errors\n");
+        } else {
+            w.write("Invalid Records Detail\n");
+            w.write("rowNumber,instrumentGuid,tradeDate,price,exchange,productType,errors\n");
+        }
+
+        int fetchSize = Integer.parseInt(PriceRecordRepository.STREAM_FETCH_SIZE);
+        try (Stream<PriceRecordEntity> records = full ? repository.streamBatch(batchId) : repository.streamInvalid(batchId)) {
+            Iterator<PriceRecordEntity> it = records.iterator();
+            for (int n = 1; it.hasNext(); n++) {
+                PriceRecordEntity e = it.next();
+                w.write(e.getRowNumber() == null ? "" : e.getRowNumber().toString());
+                w.write(',');
+                w.write(nullSafe(e.getInstrumentGuid()));
+                w.write(',');
+                w.write(nullSafe(e.getTradeDate()));
+                w.write(',');
+                w.write(nullSafe(e.getPrice()));
+                w.write(',');
+                w.write(nullSafe(e.getExchange()));
+                w.write(',');
+                w.write(nullSafe(e.getProductType()));
+                w.write(',');
+                if (full) {
+                    w.write(String.valueOf(e.isValid()));
+                    w.write(',');
+                }
+                String errors = e.getErrors();
+                if (errors != null) {
+                    w.write('"');
+                    w.write(errors.replace("\"", "\"\""));
+                    w.write('"');
+                }
+                w.write('\n');
+                // the cursor keeps only a fetch worth of rows, the persistence context must not keep the rest
+                if (n % fetchSize == 0) entityManager.clear();
+            }
+        }
+    }
+
+    private static String nullSafe(String value) {
+        return value != null ? value : "";
+    }
 }
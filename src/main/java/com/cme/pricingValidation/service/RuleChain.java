@@ -0,0 +1,178 @@
+package com.cme.pricingValidation.service;
+
+import com.cme.pricingValidation.entity.PriceRecordEntity;
+import com.cme.pricingValidation.model.PriceRecord;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The enabled {@link ValidationRule}s compiled into an array in ascending cost order, with
+ * the statistics of each rule.
+ *
+ * Counters are kept per thread in a {@link Tally} and added to the shared statistics once
+ * per range of rows, so the rows themselves never touch a shared counter. Timing reads the
+ * clock once between consecutive rules, not twice per rule.
+ */
+public final class RuleChain {
+
+    /**
+     * Invocations, failures and time spent of one rule since startup.
+     */
+    public static final class RuleStats {
+        private final String name;
+        private final int cost;
+        private final LongAdder invocations = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        RuleStats(String name, int cost) {
+            this.name = name;
+            this.cost = cost;
+        }
+
+        public String getName() { return name; }
+        public int getCost() { return cost; }
+        public long getInvocations() { return invocations.sum(); }
+        public long getFailures() { return failures.sum(); }
+        public long getTotalNanos() { return nanos.sum(); }
+
+        public double getAverageNanos() {
+            long n = invocations.sum();
+            return n == 0 ? 0 : (double) nanos.sum() / n;
+        }
+    }
+
+    /**
+     * Counters of one thread, see {@link #flush()}. Not thread safe.
+     */
+    public final class Tally {
+        private final long[] invocations = new long[rules.length];
+        private final long[] failures = new long[rules.length];
+        private final long[] nanos = new long[rules.length];
+
+        /**
+         * Adds the counts to the statistics of the chain and resets them.
+         */
+        public void flush() {
+            for (int i = 0; i < rules.length; i++) {
+                if (invocations[i] == 0) continue;
+                stats[i].invocations.add(invocations[i]);
+                stats[i].failures.add(failures[i]);
+                stats[i].nanos.add(nanos[i]);
+                invocations[i] = failures[i] = nanos[i] = 0;
+            }
+        }
+    }
+
+    private final ValidationRule[] rules;
+    private final RuleStats[] stats;
+    private final boolean failFast;
+    private final boolean timed;
+    private final boolean needsRecords;
+
+    private RuleChain(ValidationRule[] rules, boolean failFast, boolean timed) {
+        this.rules = rules;
+        this.failFast = failFast;
+        this.timed = timed;
+        this.needsRecords = Arrays.stream(rules).anyMatch(ValidationRule::needsRecord);
+        this.stats = new RuleStats[rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            stats[i] = new RuleStats(rules[i].name(), rules[i].cost());
+        }
+    }
+
+    /**
+     * @param disabled names of the rules left out of the chain
+     * @param failFast stop at the first failing rule instead of reporting every failure of a record
+     * @param timed measure the time spent in each rule
+     * @throws IllegalArgumentException when two rules have the same name
+     */
+    public static RuleChain compile(Collection<? extends ValidationRule> rules, Collection<String> disabled,
+                                    boolean failFast, boolean timed) {
+        Set<String> names = new HashSet<>();
+        for (ValidationRule rule : rules) {
+            if (!names.add(rule.name())) {
+                throw new IllegalArgumentException("Duplicate validation rule name: " + rule.name());
+            }
+        }
+        // the sort is stable, rules of equal cost keep their registration order
+        ValidationRule[] enabled = rules.stream()
+                .filter(rule -> !disabled.contains(rule.name()))
+                .sorted(Comparator.comparingInt(ValidationRule::cost))
+                .toArray(ValidationRule[]::new);
+        return new RuleChain(enabled, failFast, timed);
+    }
+
+    public Tally newTally() {
+        return new Tally();
+    }
+
+    /**
+     * Runs the rules on a record. Fields left as text in {@code parsed} are parsed by the
+     * first rule that reads them, so the timings of the field rules include their parsing.
+     * @return the bitmask of failures of all rules run
+     */
+    public int check(PriceRecord record, ParsedRecord parsed, long today, Tally tally) {
+        int errors = 0;
+        long start = timed ? System.nanoTime() : 0;
+        for (int i = 0; i < rules.length; i++) {
+            int found = rules[i].check(record, parsed, today);
+            tally.invocations[i]++;
+            if (timed) {
+                long end = System.nanoTime();
+                tally.nanos[i] += end - start;
+                start = end;
+            }
+            if (found != 0) {
+                tally.failures[i]++;
+                errors |= found;
+                if (failFast) break;
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Passes a stored chunk to every rule, see {@link ValidationRule#stored}.
+     */
+    public void stored(List<PriceRecordEntity> records) {
+        for (ValidationRule rule : rules) {
+            rule.stored(records);
+        }
+    }
+
+    /**
+     * Tells every rule the batch is done, see {@link ValidationRule#finished}.
+     */
+    public void finished(String batchId) {
+        for (ValidationRule rule : rules) {
+            rule.finished(batchId);
+        }
+    }
+
+    /**
+     * Passes a record about to change to every rule, see {@link ValidationRule#removed}.
+     */
+    public void removed(PriceRecordEntity record) {
+        for (ValidationRule rule : rules) {
+            rule.removed(record);
+        }
+    }
+
+    /**
+     * @return whether any rule reads the text of the records
+     */
+    public boolean needsRecords() {
+        return needsRecords;
+    }
+
+    public List<RuleStats> stats() {
+        return Arrays.asList(stats.clone());
+    }
+}
@@ -0,0 +1,263 @@
+package com.cme.pricingValidation.service;
+
+import com.cme.pricingValidation.entity.PriceRecordEntity;
+import com.cme.pricingValidation.model.ErrorCode;
+import com.cme.pricingValidation.util.Fingerprint;
+import com.cme.pricingValidation.util.FingerprintTable;
+import com.cme.pricingValidation.util.ScalableBloomFilter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds records already stored by another upload, e.g. a file sent again the next day.
+ * Every valid stored record's natural key is added to a {@link ScalableBloomFilter} of its
+ * trade date, so most incoming rows are cleared by a few bit tests; only a filter hit looks
+ * up the exact key, kept beside the filter with the upload that stored it. While that
+ * upload's batch is retained the hit is confirmed against its {@link NaturalKeyIndex}, so a
+ * record edited or deleted since no longer counts. Once the batch is evicted its records
+ * are deleted and the kept key confirms the hit on its own.
+ *
+ * Keys outlive the batches: trade dates are dropped once older than {@code retention-days}.
+ * Each kept key takes about 40 bytes besides its filter bits. When {@code state-file} is set
+ * the filters and keys are saved there periodically and on shutdown and read back on startup.
+ */
+@Service
+public class StoredDuplicateIndex {
+    private static final Logger logger = LoggerFactory.getLogger(StoredDuplicateIndex.class);
+
+    private static final int SNAPSHOT_VERSION = 3;
+
+    private final NaturalKeyIndex naturalKeys;
+    private final ReportService reportService;
+    private final IngestionMetrics metrics;
+    private final boolean enabled;
+    private final long initialCapacity;
+    private final double falsePositiveRate;
+    private final int retentionDays;
+    private final Path stateFile;
+    private final Map<Integer,TradeDate> byTradeDate = new ConcurrentHashMap<>();
+    // the kept keys refer to the batch that stored them by its index here, plus one
+    private final List<String> batchIds = new ArrayList<>();
+    private final Map<String,Integer> batchNumbers = new HashMap<>();
+
+    private static final class TradeDate {
+        final ScalableBloomFilter filter;
+        // to the number of the batch that stored the key, guarded by the instance
+        final FingerprintTable keys;
+
+        TradeDate(ScalableBloomFilter filter, FingerprintTable keys) {
+            this.filter = filter;
+            this.keys = keys;
+        }
+    }
+
+    public StoredDuplicateIndex(NaturalKeyIndex naturalKeys, ReportService reportService, IngestionMetrics metrics,
+                                @Value("${pricing.duplicates.cross-batch:true}") boolean enabled,
+                                @Value("${pricing.duplicates.filter.initial-capacity:8192}") long initialCapacity,
+                                @Value("${pricing.duplicates.filter.false-positive-rate:0.01}") double falsePositiveRate,
+                                @Value("${pricing.duplicates.filter.retention-days:30}") int retentionDays,
+                                @Value("${pricing.duplicates.filter.state-file:}") String stateFile) {
+        this.naturalKeys = naturalKeys;
+        this.reportService = reportService;
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.initialCapacity = Math.max(64, initialCapacity);
+        this.falsePositiveRate = falsePositiveRate;
+        this.retentionDays = retentionDays;
+        this.stateFile = stateFile == null || stateFile.isBlank() ? null : Path.of(stateFile.trim());
+    }
+
+    /**
+     * Marks the valid records about to be stored that another upload already stored invalid
+     * with {@link ErrorCode#ALREADY_STORED}. Records are keyed as stored, so e.g. a price of
+     * 100 matches a stored 100.00. Rows repeated within the upload are left to the
+     * {@link DuplicateTracker}, so a match is always in another batch.
+     * @return the number of records marked
+     */
+    public int markStored(String batchId, List<PriceRecordEntity> records) {
+        if (!enabled || byTradeDate.isEmpty()) return 0;
+        int self = batchNumber(batchId, false);
+        Fingerprint fingerprint = new Fingerprint();
+        int hits = 0, marked = 0;
+        for (PriceRecordEntity record : records) {
+            if (!record.isValid()) continue;
+            TradeDate day = byTradeDate.get(tradeDay(record));
+            if (day == null) continue;
+            DuplicateTracker.naturalKey(fingerprint.reset(), record);
+            if (!day.filter.mightContain(fingerprint.high(), fingerprint.low())) continue;
+            hits++;
+            int owner;
+            synchronized (day) {
+                owner = day.keys.get(fingerprint.high(), fingerprint.low());
+            }
+            if (owner == FingerprintTable.ABSENT || owner == self) continue;
+            String other = batchId(owner);
+            if (reportService.getBatch(other) != null
+                    && naturalKeys.find(other, new NaturalKeyIndex.Key(fingerprint.high(), fingerprint.low())) == null) {
+                // edited or deleted since it was stored
+                continue;
+            }
+            record.setValid(false);
+            record.setErrorCodes(record.getErrorCodes() | ErrorCode.ALREADY_STORED.bit());
+            marked++;
+        }
+        metrics.recordStoredDuplicates(hits, marked);
+        return marked;
+    }
+
+    /**
+     * Adds the natural keys of the valid records stored in the batch.
+     */
+    public void addStored(String batchId, List<PriceRecordEntity> records) {
+        if (!enabled) return;
+        int number = 0;
+        Fingerprint fingerprint = new Fingerprint();
+        for (PriceRecordEntity record : records) {
+            if (!record.isValid()) continue;
+            if (number == 0) {
+                number = batchNumber(batchId, true);
+            }
+            TradeDate day = byTradeDate.computeIfAbsent(tradeDay(record), d -> new TradeDate(
+                    new ScalableBloomFilter(initialCapacity, falsePositiveRate), new FingerprintTable()));
+            DuplicateTracker.naturalKey(fingerprint.reset(), record);
+            day.filter.add(fingerprint.high(), fingerprint.low());
+            synchronized (day) {
+                day.keys.putIfAbsent(fingerprint.high(), fingerprint.low(), number);
+            }
+        }
+    }
+
+    // valid records always have a trade date
+    private static int tradeDay(PriceRecordEntity record) {
+        return (int) record.getTradeDateValue().toEpochDay();
+    }
+
+    private synchronized int batchNumber(String batchId, boolean add) {
+        Integer number = batchNumbers.get(batchId);
+        if (number == null && add) {
+            batchIds.add(batchId);
+            number = batchIds.size();
+            batchNumbers.put(batchId, number);
+        }
+        return number == null ? 0 : number;
+    }
+
+    private synchronized String batchId(int number) {
+        return batchIds.get(number - 1);
+    }
+
+    /**
+     * @return the number of trade dates with a filter
+     */
+    public int size() {
+        return byTradeDate.size();
+    }
+
+    /**
+     * Drops the filters and keys of trade dates before the retention.
+     */
+    public void prune(long today) {
+        long oldest = today - retentionDays;
+        byTradeDate.keySet().removeIf(day -> day < oldest);
+    }
+
+    @PostConstruct
+    void restore() {
+        if (stateFile == null || !Files.exists(stateFile)) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(stateFile)))) {
+            int version = in.readInt();
+            if (version != SNAPSHOT_VERSION) {
+                throw new IOException("Unsupported duplicate filter snapshot version " + version);
+            }
+            for (int batches = in.readInt(); batches > 0; batches--) {
+                batchNumber(in.readUTF(), true);
+            }
+            for (int days = in.readInt(); days > 0; days--) {
+                int day = in.readInt();
+                ScalableBloomFilter filter = ScalableBloomFilter.readFrom(in);
+                int size = in.readInt();
+                FingerprintTable keys = new FingerprintTable(size);
+                for (int i = 0; i < size; i++) {
+                    keys.putIfAbsent(in.readLong(), in.readLong(), in.readInt());
+                }
+                byTradeDate.put(day, new TradeDate(filter, keys));
+            }
+            logger.info("Restored the duplicate filters of {} trade dates from {}", byTradeDate.size(), stateFile);
+        } catch (IOException e) {
+            byTradeDate.clear();
+            logger.error("Could not read duplicate filters from {}, starting without them", stateFile, e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${pricing.duplicates.filter.save-interval:PT5M}")
+    public void scheduledMaintenance() {
+        prune(LocalDate.now().toEpochDay());
+        save();
+    }
+
+    @PreDestroy
+    public void save() {
+        if (stateFile == null) return;
+        // written beside the file and moved over it, so a crash never leaves half a snapshot
+        Path temp = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                List<Map.Entry<Integer,TradeDate>> days = new ArrayList<>(byTradeDate.entrySet());
+                out.writeInt(SNAPSHOT_VERSION);
+                // every batch a key refers to, as batches are only ever added
+                List<String> ids;
+                synchronized (this) {
+                    ids = new ArrayList<>(batchIds);
+                }
+                out.writeInt(ids.size());
+                for (String id : ids) {
+                    out.writeUTF(id);
+                }
+                out.writeInt(days.size());
+                for (Map.Entry<Integer,TradeDate> day : days) {
+                    out.writeInt(day.getKey());
+                    TradeDate tradeDate = day.getValue();
+                    synchronized (tradeDate) {
+                        tradeDate.filter.writeTo(out);
+                        out.writeInt(tradeDate.keys.size());
+                        tradeDate.keys.forEach((high, low, batch) -> {
+                            try {
+                                out.writeLong(high);
+                                out.writeLong(low);
+                                out.writeInt(batch);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+                    }
+                }
+            }
+            Files.move(temp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("Could not save duplicate filters to {}", stateFile, e);
+        } catch (UncheckedIOException e) {
+            logger.error("Could not save duplicate filters to {}", stateFile, e.getCause());
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.cme.pricingValidation.service;
+
+import com.cme.pricingValidation.model.ValidationJob;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validates uploads in the background so the upload request returns at once. Jobs run on
+ * a bounded pool, on virtual threads when the runtime has them, and wait in a bounded
+ * queue beyond that; a full queue rejects new jobs.
+ */
+@Service
+public class ValidationJobService {
+    private static final Logger logger = LoggerFactory.getLogger(ValidationJobService.class);
+
+    private final CSVReader csvReader;
+    private final IngestionService ingestionService;
+    private final ThreadPoolExecutor executor;
+    private final Map<String,ValidationJob> jobs = new ConcurrentHashMap<>();
+    private final int retainedJobs;
+
+    public ValidationJobService(CSVReader csvReader, IngestionService ingestionService,
+                                @Value("${pricing.jobs.max-concurrent:2}") int maxConcurrent,
+                                @Value("${pricing.jobs.queue-capacity:16}") int queueCapacity,
+                                @Value("${pricing.jobs.retained:100}") int retainedJobs) {
+        this.csvReader = csvReader;
+        this.ingestionService = ingestionService;
+        this.retainedJobs = retainedJobs;
+        this.executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory());
+    }
+
+    private static ThreadFactory threadFactory() {
+        if (Runtime.version().feature() >= 21) {
+            return new VirtualThreadTaskExecutor("validation-job-").getVirtualThreadFactory();
+        }
+        return new CustomizableThreadFactory("validation-job-");
+    }
+
+    /**
+     * Queues the file for validation. The upload is copied to a temporary file first, as
+     * the multipart data is discarded when the request ends.
+     * @throws RejectedExecutionException when the queue is full
+     */
+    public ValidationJob submit(MultipartFile file) throws IOException {
+        Path upload = Files.createTempFile("pricing-job-", ".csv");
+        try {
+            file.transferTo(upload);
+            ValidationJob job = new ValidationJob(UUID.randomUUID().toString(), file.getOriginalFilename());
+            jobs.put(job.getId(), job);
+            try {
+                executor.execute(() -> run(job, upload));
+            } catch (RejectedExecutionException e) {
+                jobs.remove(job.getId());
+                throw e;
+            }
+            evictFinished();
+            logger.info("Queued validation job {} for {}", job.getId(), job.getFileName());
+            return job;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(upload);
+            throw e;
+        }
+    }
+
+    public ValidationJob get(String id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * @return the job, or null when there is no such job
+     */
+    public ValidationJob cancel(String id) {
+        ValidationJob job = jobs.get(id);
+        if (job != null) job.cancel();
+        return job;
+    }
+
+    private void run(ValidationJob job, Path upload) {
+        try {
+            if (!job.start()) return;
+            logger.info("Started validation job {}", job.getId());
+            try (CSVReader.ColumnReader columns = csvReader.columns(Files.newInputStream(upload), job.getFileName())) {
+                job.succeeded(ingestionService.ingestColumns(job.getId(), columns, job.getProgress()));
+                logger.info("Validation job {} finished: {} rows", job.getId(), job.getRowsValidated());
+            } catch (CancellationException e) {
+                logger.info("Validation job {} cancelled after {} rows", job.getId(), job.getRowsPersisted());
+                job.cancelled();
+            } catch (Exception e) {
+                logger.error("Validation job {} failed", job.getId(), e);
+                job.failed(e.getMessage());
+            }
+        } finally {
+            try {
+                Files.deleteIfExists(upload);
+            } catch (IOException e) {
+                logger.warn("Could not delete {}", upload, e);
+            }
+        }
+    }
+
+    /**
+     * Forgets the oldest finished jobs beyond the retained count.
+     */
+    private void evictFinished() {
+        int excess = jobs.size() - retainedJobs;
+        if (excess <= 0) return;
+        jobs.values().stream()
+                .filter(ValidationJob::isFinished)
+                .sorted(Comparator.comparing(ValidationJob::getSubmittedAt))
+                .limit(excess)
+                .forEach(j -> jobs.remove(j.getId()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.values().forEach(ValidationJob::cancel);
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,70 @@
+package com.cme.pricingValidation.service;
+
+import com.cme.pricingValidation.entity.PriceRecordEntity;
+import com.cme.pricingValidation.model.ErrorCode;
+import com.cme.pricingValidation.model.PriceRecord;
+
+import java.util.List;
+
+/**
+ * One check applied to every record. Rules are Spring beans: any bean implementing this
+ * interface is added to the validation chain, unless its name is listed in
+ * {@code pricing.validation.rules.disabled}. Rules must be stateless or thread safe, as
+ * large batches are checked on several threads.
+ */
+public interface ValidationRule {
+
+    /** Costs of the built-in rules; rules run in ascending cost order. */
+    int FIELD_COST = 10;
+    int LOOKUP_COST = 100;
+
+    /**
+     * Unique name of the rule, used to disable it and to report its statistics.
+     */
+    String name();
+
+    /**
+     * Relative cost of the rule. Cheap rules run first, so with fail-fast enabled an
+     * expensive rule is never reached for a record a cheap one already rejected.
+     */
+    default int cost() {
+        return FIELD_COST;
+    }
+
+    /**
+     * Whether {@link #check} reads the text of the record. Rules that only read the parsed
+     * fields return false, so columnar batches need not turn their rows back into text.
+     */
+    default boolean needsRecord() {
+        return true;
+    }
+
+    /**
+     * @param record the record as text, null when no enabled rule {@link #needsRecord() needs it}
+     * @param parsed the typed fields of the record, each parsed when a rule first reads it
+     * @param today the current date as an epoch day
+     * @return the bitmask of {@link ErrorCode}s found, 0 when the record passes
+     */
+    int check(PriceRecord record, ParsedRecord parsed, long today);
+
+    /**
+     * Called with each chunk of records once it is stored, in row order, for rules that
+     * learn from the accepted data. Uploads are stored concurrently, so this may be called
+     * from several threads at once.
+     */
+    default void stored(List<PriceRecordEntity> records) {
+    }
+
+    /**
+     * Called once every chunk of the batch is stored, or once storing it stopped early, so
+     * rules may learn from a whole upload at once.
+     */
+    default void finished(String batchId) {
+    }
+
+    /**
+     * Called with a stored record, as it was stored, before it is edited or deleted.
+     */
+    default void removed(PriceRecordEntity record) {
+    }
+}
@@ -1,186 +1,310 @@
 package com.cme.pricingValidation.service;
 
 import com.cme.pricingValidation.entity.PriceRecordEntity;
+import com.cme.pricingValidation.model.ErrorCode;
+import com.cme.pricingValidation.model.ErrorSummary;
 import com.cme.pricingValidation.model.PriceRecord;
+import com.cme.pricingValidation.model.ResponseDetail;
 import com.cme.pricingValidation.model.ValidationResult;
+import com.cme.pricingValidation.util.Fingerprint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
-import java.time.DateTimeException;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.format.ResolverStyle;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 @Service
 public class ValidationService {
     public static final Logger logger =LoggerFactory.getLogger(ValidationService.class);
-    private static final Set<String> ValidExchanges = Set.of("CME", "NYMEX", "CBOT", "COMEX");
-    private static final Set<String> ValidProductTypes = Set.of("FUT","OPT");
-    private static final DateTimeFormatter validDateFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
-    public List<ValidationResult> validateAll(List<PriceRecord> records) {
-        logger.info("Starting to validate the Records ",records.size());
-        List<ValidationResult> result = new ArrayList<>();
-
-        for(int i=0;i<records.size();i++){
-            PriceRecord rec = records.get(i);
-            List<String> errors = validateSingleRecord(rec,i+1);
-            boolean valid = errors.isEmpty();
-            result.add(new ValidationResult(rec,valid,errors));
-        }
-        detectDuplicates(result);
-
-        return result;
+    private final ForkJoinPool pool;
+    private final int parallelThreshold;
+    private final RuleChain rules;
+    private final IngestionMetrics metrics;
 
+    public ValidationService() {
+        this(Runtime.getRuntime().availableProcessors(), 10_000);
     }
-    public List<String> validateSingleRecord(PriceRecord record, int rowNumber){
-        List<String> errors = new ArrayList<>();
 
-        if (record.getInstrumentGuid() == null || record.getInstrumentGuid().isBlank()) {
-            errors.add("Missing instrument_guid at row " + rowNumber);
-        }
+    public ValidationService(int parallelism, int parallelThreshold) {
+        this(parallelism, parallelThreshold, FieldRules.defaults());
+    }
 
-        if (record.getTradeDate() == null || record.getTradeDate().isBlank()) {
-            errors.add("Missing trade_date at row " + rowNumber);
-        }
+    public ValidationService(int parallelism, int parallelThreshold, List<ValidationRule> rules) {
+        this(parallelism, parallelThreshold, rules, Set.of(), false, true, new IngestionMetrics());
+    }
 
-        if (record.getExchange() == null || record.getExchange().isBlank()) {
+    /**
+     * @param parallelism threads used to validate large batches
+     * @param parallelThreshold batches smaller than this are validated on the calling thread
+     * @param rules the checks applied to each record
+     * @param disabledRules names of the rules not applied
+     * @param failFast report only the first failing rule of a record
+     * @param timed measure the time spent in each rule
+     * @param metrics where the time spent and the outcome of each chunk are recorded
+     */
+    @Autowired
+    public ValidationService(@Value("${pricing.validation.parallelism:0}") int parallelism,
+                             @Value("${pricing.validation.parallel-threshold:10000}") int parallelThreshold,
+                             List<ValidationRule> rules,
+                             @Value("${pricing.validation.rules.disabled:}") Set<String> disabledRules,
+                             @Value("${pricing.validation.rules.fail-fast:false}") boolean failFast,
+                             @Value("${pricing.validation.rules.timed:true}") boolean timed,
+                             IngestionMetrics metrics) {
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.parallelThreshold = parallelThreshold;
+        this.rules = RuleChain.compile(rules, disabledRules, failFast, timed);
+        this.metrics = metrics;
+        metrics.bindRules(this.rules.stats());
+    }
 
-            errors.add("Missing exchange at row " + rowNumber);
-        }
+    @PreDestroy
+    void shutdown() {
+        pool.shutdown();
+    }
 
-        if (record.getProductType() == null || record.getProductType().isBlank()) {
-            errors.add("Missing product_type at row " + rowNumber);
-        }
+    public List<ValidationResult> validateAll(List<PriceRecord> records) {
+        return validateChunk(records, 1, new DuplicateTracker());
+    }
 
+    /**
+     * Validates one chunk of a larger upload. Row numbers start at {@code firstRow} and
+     * duplicates are resolved against everything the tracker has already seen.
+     *
+     * Large chunks are checked in parallel, each result being written to its own slot so
+     * the order is unchanged. Duplicates are then detected in a single ordered pass, so the
+     * first occurrence is always the one reported as the original.
+     */
+    public List<ValidationResult> validateChunk(List<PriceRecord> records, int firstRow, DuplicateTracker tracker) {
+        logger.debug("Starting to validate {} Records from row {}",records.size(),firstRow);
+        ValidationResult[] result = new ValidationResult[records.size()];
+        long today = LocalDate.now().toEpochDay();
+        long start = System.nanoTime();
+
+        checkAll(records.size(), (from, to) -> checkRange(records, result, from, to, firstRow, today));
+        List<ValidationResult> results = Arrays.asList(result);
+        long checked = System.nanoTime();
+        metrics.recordStage(IngestionMetrics.Stage.VALIDATE, checked - start);
+        detectDuplicates(results, tracker);
+        metrics.recordStage(IngestionMetrics.Stage.DEDUPE, System.nanoTime() - checked);
+        recordOutcome(results);
+
+        return results;
 
-        if (record.getPrice() == null || record.getPrice().isBlank()) {
-            errors.add("Missing price at row " + rowNumber);
-        } else {
+    }
 
-            if (!isValidPrice(record.getPrice())) {
-                errors.add("Invalid price format at row " + rowNumber + ": '" + record.getPrice() + "'");
-            } else {
-
-                try {
-                    BigDecimal priceValue = new BigDecimal(record.getPrice());
-                    if (priceValue.compareTo(BigDecimal.ZERO) <= 0) {
-                        errors.add("Price must be positive at row " + rowNumber + ": " + record.getPrice());
-                    }
-                    if (priceValue.scale()>=3){
-                        errors.add("Price must be rounded to 3 decimal places eg: 123.333 : "+record.getPrice());
-                    }
-                } catch (NumberFormatException e) {
-                    errors.add("Invalid price format at row " + rowNumber + ": '" + record.getPrice() + "'");
-                }
+    /**
+     * Like {@link #validateChunk} for a columnar chunk: the rules read each row's typed
+     * values straight from the columns and duplicates are keyed by them, so no row is
+     * turned back into text. Rows are numbered from {@code firstRow} for the tracker.
+     * @return the {@link ErrorCode} bitmask of each row, {@link ErrorCode#DUPLICATE} for
+     * repeats of an earlier row
+     */
+    public int[] validateColumns(PriceColumns columns, int firstRow, DuplicateTracker tracker) {
+        logger.debug("Starting to validate {} Records from row {}",columns.size(),firstRow);
+        int[] errors = new int[columns.size()];
+        long today = LocalDate.now().toEpochDay();
+        long start = System.nanoTime();
+
+        checkAll(columns.size(), (from, to) -> checkColumns(columns, errors, from, to, today));
+        long checked = System.nanoTime();
+        metrics.recordStage(IngestionMetrics.Stage.VALIDATE, checked - start);
+        Fingerprint fingerprint = new Fingerprint();
+        for (int i = 0; i < errors.length; i++) {
+            columns.naturalKey(i, fingerprint.reset());
+            if (tracker.register(fingerprint.high(), fingerprint.low(), firstRow + i) != -1) {
+                errors[i] |= ErrorCode.DUPLICATE.bit();
             }
         }
+        metrics.recordStage(IngestionMetrics.Stage.DEDUPE, System.nanoTime() - checked);
+        recordOutcome(errors);
+        return errors;
+    }
 
+    /**
+     * Checks the rows from 0 to {@code size}, splitting large batches over the pool. Each
+     * range writes to its own slots, so the order of the results is unchanged.
+     */
+    private void checkAll(int size, RangeCheck check) {
+        if (size < parallelThreshold || pool.getParallelism() == 1) {
+            check.check(0, size);
+        } else {
+            int leafSize = Math.max(1024, size / (pool.getParallelism() * 4));
+            pool.invoke(new CheckTask(check, 0, size, leafSize));
+        }
+    }
 
-        if (record.getInstrumentGuid() != null && !record.getInstrumentGuid().isBlank()) {
-            if (!isInteger(record.getInstrumentGuid())) {
-                errors.add("Invalid instrument_guid format at row " + rowNumber +
-                        " (must be numeric): '" + record.getInstrumentGuid() + "'");
+    private void checkRange(List<PriceRecord> records, ValidationResult[] result, int from, int to, int firstRow, long today) {
+        ParsedRecord parsed = new ParsedRecord();
+        RuleChain.Tally tally = rules.newTally();
+        for(int i=from;i<to;i++){
+            PriceRecord rec = records.get(i);
+            int errors = check(rec,today,parsed,tally);
+            if (errors != 0 && logger.isDebugEnabled()) {
+                logger.debug("Row {} is invalid with errors: {}", firstRow+i, ErrorCode.of(errors));
             }
+            result[i] = new ValidationResult(rec,firstRow+i,errors);
         }
+        tally.flush();
+    }
 
+    private void checkColumns(PriceColumns columns, int[] errors, int from, int to, long today) {
+        ParsedRecord parsed = new ParsedRecord();
+        RuleChain.Tally tally = rules.newTally();
+        boolean needsRecords = rules.needsRecords();
+        for (int i = from; i < to; i++) {
+            columns.load(i, parsed);
+            errors[i] = rules.check(needsRecords ? columns.record(i) : null, parsed, today, tally);
+        }
+        tally.flush();
+    }
 
-        if (record.getTradeDate() != null && !record.getTradeDate().isBlank()) {
-
-            if (!isValidDate(record.getTradeDate())) {
-                errors.add("Invalid trade_date format at row " + rowNumber +
-                        " (expected yyyy-MM-dd): '" + record.getTradeDate() + "'");
-            } else {
+    @FunctionalInterface
+    private interface RangeCheck {
+        void check(int from, int to);
+    }
 
-                try {
-                    LocalDate tradeDate = LocalDate.parse(record.getTradeDate(), validDateFormat);
-                    if (tradeDate.isAfter(LocalDate.now())) {
-                        errors.add("Trade date cannot be in future at row " + rowNumber + ": " + record.getTradeDate());
-                    }
-                } catch (DateTimeException e) {
+    private static final class CheckTask extends RecursiveAction {
+        // tasks only live in the pool, they are never serialized
+        private final transient RangeCheck check;
+        private final int from, to, leafSize;
 
-                    errors.add("Invalid trade_date at row " + rowNumber+e.getMessage());
-                }
-            }
+        CheckTask(RangeCheck check, int from, int to, int leafSize) {
+            this.check = check;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
         }
 
-        if (record.getExchange() != null && !record.getExchange().isBlank()) {
-            String exchange = record.getExchange().toUpperCase().trim();
-            if (!ValidExchanges.contains(exchange)) {
-                errors.add("Invalid exchange at row " + rowNumber +
-                        ": '" + record.getExchange() + "'. Must be one of: " + ValidExchanges);
+        @Override
+        protected void compute() {
+            if (to - from <= leafSize) {
+                check.check(from, to);
+                return;
             }
+            int mid = (from + to) >>> 1;
+            invokeAll(new CheckTask(check, from, mid, leafSize), new CheckTask(check, mid, to, leafSize));
         }
+    }
 
-        if (record.getProductType() != null && !record.getProductType().isBlank()) {
-            String productType = record.getProductType().toUpperCase().trim();
-            if (!ValidProductTypes.contains(productType)) {
-                errors.add("Invalid product_type at row " + rowNumber +
-                        ": '" + record.getProductType() + "'. Must be one of: " + ValidProductTypes);
-            }
-        }
-        if (!errors.isEmpty()) {
-            logger.debug("Row {} is invalid with errors: {}", rowNumber, errors);
-        }
+    public List<String> validateSingleRecord(PriceRecord record, int rowNumber){
+        return ErrorCode.render(check(record, LocalDate.now().toEpochDay(), new ParsedRecord()), record, rowNumber, 0);
+    }
 
+    /**
+     * Checks one record, parsing each field once into {@code parsed}.
+     * @param today the current date as an epoch day, resolved once per batch by the caller
+     * @param parsed scratch holder for the typed values, reused across the rows of a batch
+     * @return the bitmask of {@link ErrorCode}s found, 0 when the record is valid
+     */
+    public int check(PriceRecord record, long today, ParsedRecord parsed){
+        RuleChain.Tally tally = rules.newTally();
+        int errors = check(record, today, parsed, tally);
+        tally.flush();
         return errors;
     }
 
-    private void detectDuplicates(List<ValidationResult> results) {
-        logger.info("Checking for duplicate records");
-
-        Map<String, List<Integer>> recordGroups = new HashMap<>();
+    private int check(PriceRecord record, long today, ParsedRecord parsed, RuleChain.Tally tally){
+        return rules.check(record, parsed.reset(record), today, tally);
+    }
 
-        for (int i = 0; i < results.size(); i++) {
-            ValidationResult result = results.get(i);
-            PriceRecord record = result.getPriceRecord();
+    /**
+     * Tells the rules that a chunk of records was stored.
+     */
+    public void stored(List<PriceRecordEntity> records) {
+        rules.stored(records);
+    }
 
+    /**
+     * Tells the rules that storing the batch is done.
+     */
+    public void finished(String batchId) {
+        rules.finished(batchId);
+    }
 
-            String key = String.join("|",
-                    nullSafe(record.getInstrumentGuid()),
-                    nullSafe(record.getTradeDate()),
-                    nullSafe(record.getPrice()),
-                    nullSafe(record.getExchange()),
-                    nullSafe(record.getProductType())
-            );
-            recordGroups.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
-        }
+    /**
+     * Tells the rules that a stored record is about to be edited or deleted.
+     * @return a copy of the record as it was, to {@link #learn} again when an edit is dropped,
+     *         null when it is invalid, as the rules only learn valid records
+     */
+    public PriceRecordEntity removed(PriceRecordEntity record) {
+        rules.removed(record);
+        return record.isValid() ? unbatched(record) : null;
+    }
 
+    /**
+     * Tells the rules about a record stored outside an upload, such as an edited one.
+     * @param record the record, ignored when null or invalid
+     */
+    public void learn(PriceRecordEntity record) {
+        if (record == null || !record.isValid()) return;
+        rules.stored(List.of(unbatched(record)));
+    }
 
-        int duplicateGroupsFound = 0;
-        for (Map.Entry<String, List<Integer>> entry : recordGroups.entrySet()) {
-            List<Integer> indices = entry.getValue();
-            if (indices.size() > 1) {
-                duplicateGroupsFound++;
+    // without its batch, which may be finished already, so the rules learn it at once
+    private static PriceRecordEntity unbatched(PriceRecordEntity record) {
+        return new PriceRecordEntity(record.getInstrumentGuidValue(), record.getTradeDateValue(), record.getPriceValue(),
+                record.getExchangeValue(), record.getProductTypeValue(), record.getRowNumber(), record.isValid(),
+                record.getErrorCodes());
+    }
 
-                Collections.sort(indices);
+    /**
+     * @return the statistics of the enabled rules, in the order they run
+     */
+    public List<RuleChain.RuleStats> ruleStats() {
+        return rules.stats();
+    }
 
-                int origIdx = indices.get(0);
-                int origRow = origIdx+1;
-                for(int i=1;i<indices.size();i++){
-                    int dupIdx = indices.get(i);
-                    int dupRow = dupIdx+1;
-                    ValidationResult dupRec= results.get(dupIdx);
+    private void detectDuplicates(List<ValidationResult> results, DuplicateTracker tracker) {
+        logger.debug("Checking for duplicate records");
 
-                    String errorMsg = "Duplicate Record of Row "+origRow +" at "+dupRow;
+        int duplicatesFound = 0;
+        for (ValidationResult result : results) {
+            int origRow = tracker.register(result.getPriceRecord(), result.getRowNumber());
+            if (origRow != -1) {
+                duplicatesFound++;
+                result.markDuplicateOf(origRow);
+            }
+        }
 
-                    dupRec.getErrors().add(errorMsg);
-                    dupRec.setIfValid(false);
+        logger.debug("Found {} duplicate records", duplicatesFound);
+    }
 
-                }
+    private void recordOutcome(List<ValidationResult> results) {
+        int[] masks = new int[results.size()];
+        for (int i = 0; i < masks.length; i++) {
+            masks[i] = results.get(i).getErrorMask();
+        }
+        recordOutcome(masks);
+    }
 
+    private void recordOutcome(int[] masks) {
+        int[] errorCounts = new int[ErrorCode.values().length];
+        int valid = 0, duplicates = 0;
+        for (int mask : masks) {
+            if (mask == 0) {
+                valid++;
+                continue;
+            }
+            if (ErrorCode.DUPLICATE.isSet(mask)) duplicates++;
+            for (; mask != 0; mask &= mask - 1) {
+                errorCounts[Integer.numberOfTrailingZeros(mask)]++;
             }
         }
-
-        logger.info("Found {} duplicate groups", duplicateGroupsFound);
+        metrics.recordChunk(masks.length, valid, duplicates, errorCounts);
     }
 
-    public List<String> validateRecord(PriceRecordEntity record) {
-        logger.debug("Validating entity record ID:",record.getId());
+    /**
+     * @return the bitmask of {@link ErrorCode}s of the stored record, 0 when it is valid
+     */
+    public int validateRecord(PriceRecordEntity record) {
+        logger.debug("Validating entity record ID: {}",record.getId());
 
         PriceRecord rec = new PriceRecord(
                 record.getInstrumentGuid(),
@@ -189,61 +313,36 @@ public class ValidationService {
                 record.getExchange(),
                 record.getProductType()
         );
-        List<String> errors = validateSingleRecord(rec,record.getRowNumber()==null?0:record.getRowNumber());
-
-        return errors;
+        return check(rec, LocalDate.now().toEpochDay(), new ParsedRecord());
     }
-    
 
-    public Map<String,Object> summary(List<ValidationResult> result){
-        long valid  = result.stream().filter(ValidationResult::getIfValid).count();
-        long invalid = result.size()-valid;
-        List<String> totalErrors = new ArrayList<>();
+    /**
+     * Counts the results, with their failures by {@link ErrorCode} under "errorsByCode".
+     * At {@link ResponseDetail#FULL} the message of every failure is listed under "Errors"
+     * too, as it always was, so clients of the default response see no change.
+     * @param maxSamples rows kept as samples for each code
+     */
+    public Map<String,Object> summary(List<ValidationResult> result, int maxSamples, ResponseDetail detail){
+        long valid = 0;
+        ErrorSummary errors = new ErrorSummary(maxSamples);
+        List<String> totalErrors = detail == ResponseDetail.FULL ? new ArrayList<>() : null;
         for(ValidationResult r : result){
-            totalErrors.addAll(r.getErrors());
+            if(r.getIfValid()) {
+                valid++;
+                continue;
+            }
+            errors.add(r);
+            if(totalErrors != null) totalErrors.addAll(r.getErrors());
         }
+        long invalid = result.size()-valid;
         Map<String,Object> sum = new HashMap<>();
         sum.put("total",result.size());
         sum.put("valid",valid);
         sum.put("invalid",invalid);
-        sum.put("Errors",totalErrors);
+        if(totalErrors != null) sum.put("Errors",totalErrors);
+        sum.put("errorsByCode",errors);
 
         return sum;
     }
-    private boolean isInteger(String value) {
-        if (value == null || value.isBlank()) return false;
-        try {
-            Integer.parseInt(value);
-            return true;
-        } catch (NumberFormatException e) {
-            return false;
-        }
-    }
-
-    private boolean isValidPrice(String value) {
-        if (value == null || value.isBlank()) return false;
-        try {
-            new BigDecimal(value);
-            return true;
-        } catch (NumberFormatException e) {
-            return false;
-        }
-    }
-    private boolean isValidDate(String dateStr) {
-        if (dateStr == null || dateStr.isBlank()) return false;
-
-        try {
-
-            LocalDate.parse(dateStr, validDateFormat);
-            return true;
-
-        } catch (DateTimeException e) {
-            return false;
-        }
-    }
-
-    private String nullSafe(String value) {
-        return value != null ? value : "";
-    }
 
 }
@@ -0,0 +1,48 @@
+package com.cme.pricingValidation.util;
+
+import io.airlift.compress.zstd.ZstdInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Transparent decompression of uploads. The format is told by the magic number at the
+ * start of the data rather than by the file name or content type, which clients do not
+ * set reliably; anything else is read as is.
+ */
+public final class Compression {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final byte[] GZIP_MAGIC = {(byte) 0x1f, (byte) 0x8b};
+    private static final byte[] ZSTD_MAGIC = {(byte) 0x28, (byte) 0xb5, (byte) 0x2f, (byte) 0xfd};
+
+    private Compression() {
+    }
+
+    /**
+     * @return {@code in} decompressed while it is read when it is gzip or zstd data, else its bytes unchanged
+     */
+    public static InputStream decompress(InputStream in) throws IOException {
+        PushbackInputStream pushback = new PushbackInputStream(in, ZSTD_MAGIC.length);
+        byte[] head = new byte[ZSTD_MAGIC.length];
+        int read = pushback.readNBytes(head, 0, head.length);
+        pushback.unread(head, 0, read);
+        if (startsWith(head, read, GZIP_MAGIC)) {
+            return new GZIPInputStream(pushback, BUFFER_SIZE);
+        }
+        if (startsWith(head, read, ZSTD_MAGIC)) {
+            return new ZstdInputStream(pushback);
+        }
+        return pushback;
+    }
+
+    private static boolean startsWith(byte[] head, int length, byte[] magic) {
+        if (length < magic.length) return false;
+        for (int i = 0; i < magic.length; i++) {
+            if (head[i] != magic[i]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,182 @@
+package com.cme.pricingValidation.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Open addressing hash table from a 128 bit {@link Fingerprint} to a positive long, like
+ * {@link FingerprintTable} but safe to use from many threads. Lookups take no lock; writes
+ * are serialized on the map.
+ *
+ * A slot's fingerprint is written before its value is published with release semantics
+ * and never changes afterwards, so a reader that sees a value also sees its fingerprint.
+ * Removal leaves a tombstone in the slot rather than moving entries, and the tombstones
+ * are dropped when the table is rebuilt; a rebuild publishes new arrays, and a reader that
+ * probed the old ones looks again in the new ones, see {@link #get}.
+ */
+public final class ConcurrentFingerprintMap {
+
+    /** Returned by lookups when the fingerprint is absent. */
+    public static final long ABSENT = 0;
+    private static final long REMOVED = -1;
+
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(long[].class);
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long high, long low, long value);
+    }
+
+    private static final class Slots {
+        final long[] highs;
+        final long[] lows;
+        final long[] values;
+        final int mask;
+
+        Slots(int capacity) {
+            highs = new long[capacity];
+            lows = new long[capacity];
+            values = new long[capacity];
+            mask = capacity - 1;
+        }
+    }
+
+    private volatile Slots slots;
+    // guarded by this
+    private int size;
+    private int used;
+
+    public ConcurrentFingerprintMap() {
+        this(1024);
+    }
+
+    public ConcurrentFingerprintMap(int expectedSize) {
+        slots = new Slots(capacityFor(expectedSize));
+    }
+
+    /**
+     * Looks the fingerprint up without locking. Every entry added or removed before the
+     * call started is seen, also across a rebuild, as the lookup is repeated on the new
+     * arrays when they were published meanwhile. Entries changed while it runs may or may
+     * not be, so the answer is only a hint to a concurrent writer: {@link #putIfAbsent} and
+     * {@link #remove} decide.
+     */
+    public long get(long high, long low) {
+        Slots s = slots;
+        while (true) {
+            long value = probe(s, high, low);
+            Slots current = slots;
+            if (current == s) return value;
+            s = current;
+        }
+    }
+
+    private static long probe(Slots s, long high, long low) {
+        int slot = (int) high & s.mask;
+        long value;
+        while ((value = (long) VALUES.getAcquire(s.values, slot)) != ABSENT) {
+            if (s.highs[slot] == high && s.lows[slot] == low) {
+                return value == REMOVED ? ABSENT : value;
+            }
+            slot = (slot + 1) & s.mask;
+        }
+        return ABSENT;
+    }
+
+    /**
+     * Stores the value unless the fingerprint is already present.
+     * @param value a positive value
+     * @return the value already stored for the fingerprint, or {@link #ABSENT} if it was added
+     */
+    public synchronized long putIfAbsent(long high, long low, long value) {
+        if (value <= 0) throw new IllegalArgumentException("Values must be positive: " + value);
+        Slots s = slots;
+        int slot = (int) high & s.mask;
+        long current;
+        while ((current = s.values[slot]) != ABSENT) {
+            if (s.highs[slot] == high && s.lows[slot] == low) {
+                if (current != REMOVED) return current;
+                VALUES.setRelease(s.values, slot, value);
+                size++;
+                return ABSENT;
+            }
+            slot = (slot + 1) & s.mask;
+        }
+        s.highs[slot] = high;
+        s.lows[slot] = low;
+        VALUES.setRelease(s.values, slot, value);
+        size++;
+        if (++used > maxUsed(s.mask + 1)) {
+            rebuild();
+        }
+        return ABSENT;
+    }
+
+    /**
+     * Removes the fingerprint if it maps to the given value.
+     * @return whether it was removed
+     */
+    public synchronized boolean remove(long high, long low, long value) {
+        Slots s = slots;
+        int slot = (int) high & s.mask;
+        long current;
+        while ((current = s.values[slot]) != ABSENT) {
+            if (s.highs[slot] == high && s.lows[slot] == low) {
+                if (current != value) return false;
+                VALUES.setRelease(s.values, slot, REMOVED);
+                size--;
+                return true;
+            }
+            slot = (slot + 1) & s.mask;
+        }
+        return false;
+    }
+
+    /**
+     * Visits every entry. Entries added or removed meanwhile may or may not be visited.
+     */
+    public void forEach(EntryConsumer action) {
+        Slots s = slots;
+        for (int slot = 0; slot <= s.mask; slot++) {
+            long value = (long) VALUES.getAcquire(s.values, slot);
+            if (value != ABSENT && value != REMOVED) {
+                action.accept(s.highs[slot], s.lows[slot], value);
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = 16;
+        while (maxUsed(capacity) < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int maxUsed(int capacity) {
+        return capacity >>> 1;
+    }
+
+    // sized for the live entries only, so a table with many removals may also shrink
+    private void rebuild() {
+        Slots old = slots;
+        Slots s = new Slots(capacityFor(size * 2));
+        for (int i = 0; i <= old.mask; i++) {
+            long value = old.values[i];
+            if (value == ABSENT || value == REMOVED) continue;
+            int slot = (int) old.highs[i] & s.mask;
+            while (s.values[slot] != ABSENT) {
+                slot = (slot + 1) & s.mask;
+            }
+            s.highs[slot] = old.highs[i];
+            s.lows[slot] = old.lows[i];
+            s.values[slot] = value;
+        }
+        used = size;
+        slots = s;
+    }
+}
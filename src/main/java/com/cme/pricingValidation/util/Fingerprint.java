@@ -0,0 +1,91 @@
+package com.cme.pricingValidation.util;
+
+/**
+ * Incremental 128 bit hash of a sequence of fields, computed from the characters without
+ * allocating. Two independent 64 bit lanes keep accidental collisions negligible even for
+ * tens of millions of rows. Instances are reusable through {@link #reset()}.
+ */
+public final class Fingerprint {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+    private static final char FIELD_SEPARATOR = '\u001F';
+
+    private long h1;
+    private long h2;
+
+    public Fingerprint() {
+        reset();
+    }
+
+    public Fingerprint reset() {
+        h1 = FNV_OFFSET;
+        h2 = GOLDEN;
+        return this;
+    }
+
+    /**
+     * Adds a field as is. A null field hashes like an empty one.
+     */
+    public Fingerprint add(String value) {
+        return add(value, false);
+    }
+
+    /**
+     * Adds a field ignoring surrounding whitespace and ASCII case.
+     */
+    public Fingerprint addNormalized(String value) {
+        return add(value, true);
+    }
+
+    public Fingerprint add(long value) {
+        mix(value);
+        mix(value >>> 32);
+        return separator();
+    }
+
+    private Fingerprint add(String value, boolean normalize) {
+        if (value != null) {
+            int from = 0, to = value.length();
+            if (normalize) {
+                while (from < to && Character.isWhitespace(value.charAt(from))) from++;
+                while (to > from && Character.isWhitespace(value.charAt(to - 1))) to--;
+            }
+            for (int i = from; i < to; i++) {
+                char c = value.charAt(i);
+                if (normalize && c >= 'a' && c <= 'z') c -= 'a' - 'A';
+                mix(c);
+            }
+        }
+        return separator();
+    }
+
+    private Fingerprint separator() {
+        mix(FIELD_SEPARATOR);
+        return this;
+    }
+
+    private void mix(long v) {
+        h1 = (h1 ^ v) * FNV_PRIME;
+        h2 = Long.rotateLeft(h2 ^ v, 27) * GOLDEN + 0x52dce729;
+    }
+
+    public long high() {
+        return fmix64(h1);
+    }
+
+    public long low() {
+        return fmix64(h2 ^ h1 >>> 33);
+    }
+
+    /** Final avalanche step of MurmurHash3. */
+    public static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
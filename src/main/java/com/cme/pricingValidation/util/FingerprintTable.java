@@ -0,0 +1,104 @@
+package com.cme.pricingValidation.util;
+
+/**
+ * Open addressing hash table from a 128 bit {@link Fingerprint} to a positive int, kept in
+ * parallel primitive arrays so entries need no objects or boxing. Not thread safe.
+ */
+public final class FingerprintTable {
+
+    /** Returned by lookups when the fingerprint is absent. */
+    public static final int ABSENT = 0;
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long high, long low, int value);
+    }
+
+    private long[] highs;
+    private long[] lows;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    public FingerprintTable() {
+        this(1024);
+    }
+
+    public FingerprintTable(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Stores the value unless the fingerprint is already present.
+     * @param value a positive value
+     * @return the value already stored for the fingerprint, or {@link #ABSENT} if it was added
+     */
+    public int putIfAbsent(long high, long low, int value) {
+        if (value <= 0) throw new IllegalArgumentException("Values must be positive: " + value);
+        int slot = (int) high & mask;
+        while (values[slot] != ABSENT) {
+            if (highs[slot] == high && lows[slot] == low) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        highs[slot] = high;
+        lows[slot] = low;
+        values[slot] = value;
+        if (++size > (mask + 1) >>> 1) {
+            grow();
+        }
+        return ABSENT;
+    }
+
+    public int get(long high, long low) {
+        int slot = (int) high & mask;
+        while (values[slot] != ABSENT) {
+            if (highs[slot] == high && lows[slot] == low) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return ABSENT;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Passes every entry to {@code consumer}, in no particular order.
+     */
+    public void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != ABSENT) {
+                consumer.accept(highs[i], lows[i], values[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        highs = new long[capacity];
+        lows = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private void grow() {
+        long[] oldHighs = highs, oldLows = lows;
+        int[] oldValues = values;
+        allocate(oldValues.length * 2);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != ABSENT) {
+                int slot = (int) oldHighs[i] & mask;
+                while (values[slot] != ABSENT) {
+                    slot = (slot + 1) & mask;
+                }
+                highs[slot] = oldHighs[i];
+                lows[slot] = oldLows[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
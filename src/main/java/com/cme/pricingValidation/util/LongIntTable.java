@@ -0,0 +1,116 @@
+package com.cme.pricingValidation.util;
+
+/**
+ * Open addressing hash table from a long to a positive int, kept in parallel primitive
+ * arrays so millions of entries need no objects or boxing. Filled up to three quarters
+ * before growing, as it is meant for large tables that are built once and then only read.
+ * Not thread safe while being written; safe to read from any thread once published.
+ */
+public final class LongIntTable {
+
+    /** Returned by lookups when the key is absent. */
+    public static final int ABSENT = 0;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    public LongIntTable() {
+        this(1024);
+    }
+
+    public LongIntTable(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Stores the value, replacing any value already stored for the key.
+     * @param value a positive value
+     * @return the value previously stored for the key, or {@link #ABSENT}
+     */
+    public int put(long key, int value) {
+        if (value <= 0) throw new IllegalArgumentException("Values must be positive: " + value);
+        int slot = slot(key);
+        while (values[slot] != ABSENT) {
+            if (keys[slot] == key) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > maxSize(mask + 1)) {
+            grow();
+        }
+        return ABSENT;
+    }
+
+    public int get(long key) {
+        int slot = slot(key);
+        while (values[slot] != ABSENT) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return ABSENT;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * A copy that later writes to this table do not change, to publish to readers.
+     */
+    public LongIntTable copy() {
+        LongIntTable copy = new LongIntTable(0);
+        copy.keys = keys.clone();
+        copy.values = values.clone();
+        copy.mask = mask;
+        copy.size = size;
+        return copy;
+    }
+
+    // keys such as instrument ids are often sequential, so they are mixed before masking
+    private int slot(long key) {
+        return (int) Fingerprint.fmix64(key) & mask;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = 16;
+        while (maxSize(capacity) < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int maxSize(int capacity) {
+        return capacity - (capacity >>> 2);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldValues.length * 2);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != ABSENT) {
+                int slot = slot(oldKeys[i]);
+                while (values[slot] != ABSENT) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.cme.pricingValidation.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Reads the parts of a multipart/form-data body one after another as its bytes arrive.
+ * The content of each part is a stream ending at the next boundary, so a part is handed
+ * on while it is still being received and is never held in memory or written to disk as
+ * a whole; parts not read to their end are skipped. Not thread safe.
+ */
+public final class MultipartParts implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_HEADER_SIZE = 8 << 10;
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final byte DASH = '-';
+
+    /**
+     * A part of the body: its form field name, the file name when it is a file, and its content.
+     */
+    public static final class Part {
+        private final String name;
+        private final String fileName;
+        private final String contentType;
+        private final InputStream content;
+
+        Part(String name, String fileName, String contentType, InputStream content) {
+            this.name = name;
+            this.fileName = fileName;
+            this.contentType = contentType;
+            this.content = content;
+        }
+
+        public String getName() { return name; }
+        public String getFileName() { return fileName; }
+        public String getContentType() { return contentType; }
+
+        /**
+         * The bytes of the part, valid until the next part is requested.
+         */
+        public InputStream getContent() { return content; }
+    }
+
+    private final InputStream in;
+    // every boundary after the preamble is preceded by a line break
+    private final byte[] delimiter;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    private boolean eof;
+    private boolean finished;
+    private PartContent current;
+
+    /**
+     * @param boundary the boundary of the body, see {@link #boundary(String)}
+     */
+    public MultipartParts(InputStream in, String boundary) {
+        if (boundary.isEmpty() || boundary.length() > 70) {
+            throw new IllegalArgumentException("Invalid multipart boundary");
+        }
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        // a line break before the body lets the first boundary be found like the others
+        buffer[0] = CR;
+        buffer[1] = LF;
+        limit = 2;
+    }
+
+    /**
+     * @return the boundary parameter of a multipart content type, or null when there is none
+     */
+    public static String boundary(String contentType) {
+        if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("multipart/")) return null;
+        for (String param : contentType.split(";")) {
+            String[] pair = param.trim().split("=", 2);
+            if (pair.length == 2 && pair[0].trim().equalsIgnoreCase("boundary")) {
+                String value = pair[1].trim();
+                if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                return value.isEmpty() ? null : value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Skips what is left of the current part and reads the headers of the next one.
+     * @return the next part, or null after the last one
+     * @throws IOException when the body is not well formed multipart data
+     */
+    public Part next() throws IOException {
+        if (finished) return null;
+        if (current == null) {
+            // skips the preamble up to the first boundary
+            current = new PartContent();
+        }
+        current.skipToEnd();
+        if (!ensure(2)) throw new IOException("Multipart body ended after a boundary");
+        if (buffer[pos] == DASH && buffer[pos + 1] == DASH) {
+            finished = true;
+            return null;
+        }
+        readLine();
+
+        String name = null, fileName = null, contentType = null;
+        int headerSize = 0;
+        for (String line; !(line = readLine()).isEmpty(); ) {
+            headerSize += line.length();
+            if (headerSize > MAX_HEADER_SIZE) throw new IOException("Multipart part headers too large");
+            int colon = line.indexOf(':');
+            if (colon < 0) continue;
+            String header = line.substring(0, colon).trim();
+            String value = line.substring(colon + 1).trim();
+            if (header.equalsIgnoreCase("Content-Disposition")) {
+                name = parameter(value, "name");
+                fileName = parameter(value, "filename");
+            } else if (header.equalsIgnoreCase("Content-Type")) {
+                contentType = value;
+            }
+        }
+        current = new PartContent();
+        return new Part(name, fileName, contentType, current);
+    }
+
+    private static String parameter(String header, String name) {
+        for (String param : header.split(";")) {
+            String[] pair = param.trim().split("=", 2);
+            if (pair.length == 2 && pair[0].trim().equalsIgnoreCase(name)) {
+                String value = pair[1].trim();
+                if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                return value;
+            }
+        }
+        return null;
+    }
+
+    // a header line without its line break, the limit bounds a line without one
+    private String readLine() throws IOException {
+        int start = pos;
+        int scanned = pos;
+        while (true) {
+            for (; scanned + 1 < limit; scanned++) {
+                if (buffer[scanned] == CR && buffer[scanned + 1] == LF) {
+                    String line = new String(buffer, start, scanned - start, StandardCharsets.UTF_8);
+                    pos = scanned + 2;
+                    return line;
+                }
+            }
+            if (scanned - start > MAX_HEADER_SIZE) throw new IOException("Multipart part headers too large");
+            int offset = compact();
+            start -= offset;
+            scanned -= offset;
+            if (!fill()) throw new IOException("Multipart body ended inside the part headers");
+        }
+    }
+
+    /**
+     * @return whether {@code count} bytes are buffered from {@code pos}, reading more as needed
+     */
+    private boolean ensure(int count) throws IOException {
+        while (limit - pos < count) {
+            compact();
+            if (!fill()) return false;
+        }
+        return true;
+    }
+
+    // moves the unread bytes to the start of the buffer, returning how far they moved
+    private int compact() {
+        int offset = pos;
+        if (offset > 0) {
+            System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+            limit -= offset;
+            pos = 0;
+        }
+        return offset;
+    }
+
+    private boolean fill() throws IOException {
+        if (eof || limit == buffer.length) return false;
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            eof = true;
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    // the position of the delimiter in the buffered bytes, or -1
+    private int findDelimiter() {
+        byte first = delimiter[0];
+        for (int i = pos, last = limit - delimiter.length; i <= last; i++) {
+            if (buffer[i] != first) continue;
+            int j = 1;
+            while (j < delimiter.length && buffer[i + j] == delimiter[j]) j++;
+            if (j == delimiter.length) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * The bytes up to the next delimiter. The last delimiter length - 1 buffered bytes are
+     * only handed out once it is certain they do not start the delimiter.
+     */
+    private final class PartContent extends InputStream {
+        private boolean done;
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            while (!done) {
+                int available = available();
+                if (available > 0) {
+                    int n = Math.min(len, available);
+                    System.arraycopy(buffer, pos, b, off, n);
+                    pos += n;
+                    return n;
+                }
+                if (!done) {
+                    compact();
+                    if (!fill()) throw new IOException("Multipart body ended inside a part");
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * The bytes that can be read without blocking, ending the part once its delimiter is next.
+         */
+        @Override
+        public int available() {
+            if (done) return 0;
+            int delimiterAt = findDelimiter();
+            if (delimiterAt == pos) {
+                pos += delimiter.length;
+                done = true;
+                return 0;
+            }
+            if (delimiterAt >= 0) return delimiterAt - pos;
+            return Math.max(0, limit - pos - (delimiter.length - 1));
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+            while (skipped < n && !done) {
+                int available = available();
+                if (available > 0) {
+                    int step = (int) Math.min(n - skipped, available);
+                    pos += step;
+                    skipped += step;
+                } else if (!done) {
+                    compact();
+                    if (!fill()) throw new IOException("Multipart body ended inside a part");
+                }
+            }
+            return skipped;
+        }
+
+        void skipToEnd() throws IOException {
+            while (!done) {
+                skip(Long.MAX_VALUE);
+            }
+        }
+
+        // the next part is found by the parser, closing a part only stops reading it
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.cme.pricingValidation.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Bloom filter of 128 bit {@link Fingerprint}s that grows with its contents: once a stage
+ * holds its capacity, a stage of twice the capacity and half the false positive rate is
+ * added, so the overall false positive rate stays below twice the initial one however many
+ * fingerprints are added. The k bit positions are derived from the two halves of the
+ * fingerprint by double hashing, as both are already well mixed.
+ *
+ * Lookups take no lock; additions are serialized on the filter and publish their bits with
+ * release semantics.
+ */
+public final class ScalableBloomFilter {
+
+    private static final VarHandle BITS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final double LN2 = Math.log(2);
+
+    private static final class Stage {
+        final long[] bits;
+        final long mask;
+        final int hashes;
+        final long capacity;
+        final double falsePositiveRate;
+        long count;
+
+        Stage(long capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            double bitsPerKey = -Math.log(falsePositiveRate) / (LN2 * LN2);
+            long bitCount = Long.highestOneBit(Math.max(64, (long) Math.ceil(capacity * bitsPerKey)) - 1) << 1;
+            this.bits = new long[(int) (bitCount >>> 6)];
+            this.mask = bitCount - 1;
+            this.hashes = Math.max(1, (int) Math.round(bitsPerKey * LN2));
+        }
+
+        Stage(long capacity, double falsePositiveRate, int hashes, long count, long[] bits) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            this.hashes = hashes;
+            this.count = count;
+            this.bits = bits;
+            this.mask = ((long) bits.length << 6) - 1;
+        }
+
+        boolean mightContain(long high, long low) {
+            for (int i = 0; i < hashes; i++) {
+                long bit = (high + i * low) & mask;
+                if (((long) BITS.getAcquire(bits, (int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void add(long high, long low) {
+            for (int i = 0; i < hashes; i++) {
+                long bit = (high + i * low) & mask;
+                BITS.getAndBitwiseOrRelease(bits, (int) (bit >>> 6), 1L << bit);
+            }
+            count++;
+        }
+    }
+
+    private volatile Stage[] stages;
+
+    /**
+     * @param initialCapacity fingerprints the first stage holds at the given rate
+     * @param falsePositiveRate rate of the first stage, between 0 and 1 exclusive
+     */
+    public ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+        if (initialCapacity <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid Bloom filter settings");
+        }
+        stages = new Stage[] {new Stage(initialCapacity, falsePositiveRate)};
+    }
+
+    private ScalableBloomFilter(Stage[] stages) {
+        this.stages = stages;
+    }
+
+    /**
+     * @return false if the fingerprint was certainly never added
+     */
+    public boolean mightContain(long high, long low) {
+        for (Stage stage : stages) {
+            if (stage.mightContain(high, low)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adds the fingerprint unless it seems present already.
+     * @return whether it was added
+     */
+    public synchronized boolean add(long high, long low) {
+        if (mightContain(high, low)) return false;
+        Stage[] s = stages;
+        Stage last = s[s.length - 1];
+        last.add(high, low);
+        if (last.count >= last.capacity) {
+            Stage[] grown = Arrays.copyOf(s, s.length + 1);
+            grown[s.length] = new Stage(last.capacity * 2, last.falsePositiveRate / 2);
+            stages = grown;
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of fingerprints added
+     */
+    public synchronized long size() {
+        long size = 0;
+        for (Stage stage : stages) {
+            size += stage.count;
+        }
+        return size;
+    }
+
+    public synchronized void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(stages.length);
+        for (Stage stage : stages) {
+            out.writeLong(stage.capacity);
+            out.writeDouble(stage.falsePositiveRate);
+            out.writeInt(stage.hashes);
+            out.writeLong(stage.count);
+            out.writeInt(stage.bits.length);
+            for (long word : stage.bits) {
+                out.writeLong(word);
+            }
+        }
+    }
+
+    public static ScalableBloomFilter readFrom(DataInputStream in) throws IOException {
+        Stage[] stages = new Stage[in.readInt()];
+        if (stages.length == 0) throw new IOException("Bloom filter without stages");
+        for (int i = 0; i < stages.length; i++) {
+            long capacity = in.readLong();
+            double falsePositiveRate = in.readDouble();
+            int hashes = in.readInt();
+            long count = in.readLong();
+            long[] bits = new long[in.readInt()];
+            if (Long.bitCount(bits.length) != 1) throw new IOException("Invalid Bloom filter size " + bits.length);
+            for (int j = 0; j < bits.length; j++) {
+                bits[j] = in.readLong();
+            }
+            stages[i] = new Stage(capacity, falsePositiveRate, hashes, count, bits);
+        }
+        return new ScalableBloomFilter(stages);
+    }
+}
@@ -0,0 +1,113 @@
+package com.cme.pricingValidation.service;
+
+import com.cme.pricingValidation.model.PriceRecord;
+import io.airlift.compress.zstd.ZstdOutputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CSVReaderTest {
+
+    private final CSVReader csvReader = new CSVReader();
+
+    private MockMultipartFile csv(String content) {
+        return new MockMultipartFile("file", "prices.csv", "text/csv", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void reorderedHeaders_shouldMapToTheRightFields() throws Exception {
+        List<PriceRecord> records = csvReader.read(csv(
+                "exchange,price,comment,product_type,trade_date,instrument_guid\n" +
+                "CME,120.50,ignored,FUT,2025-01-10,1001\n"
+        ));
+
+        assertEquals(1, records.size());
+        PriceRecord r = records.get(0);
+        assertEquals("1001", r.getInstrumentGuid());
+        assertEquals("2025-01-10", r.getTradeDate());
+        assertEquals("120.50", r.getPrice());
+        assertEquals("CME", r.getExchange());
+        assertEquals("FUT", r.getProductType());
+    }
+
+    @Test
+    void quotedFields_shouldBeUnquoted() throws Exception {
+        List<PriceRecord> records = csvReader.read(csv(
+                "instrumentGuid,tradeDate,price,exchange,productType\r\n" +
+                "\"1001\", 2025-01-10 ,\"1,20\"\"5\",\"CME\",FUT\r\n"
+        ));
+
+        PriceRecord r = records.get(0);
+        assertEquals("1001", r.getInstrumentGuid());
+        assertEquals("2025-01-10", r.getTradeDate());
+        assertEquals("1,20\"5", r.getPrice());
+        assertEquals("CME", r.getExchange());
+        assertEquals("FUT", r.getProductType());
+    }
+
+    @Test
+    void blankLinesAndByteOrderMark_shouldBeIgnored_andShortRowsPadded() throws Exception {
+        List<PriceRecord> records = csvReader.read(csv(
+                "\uFEFFinstrumentGuid,tradeDate,price,exchange,productType\n" +
+                "\n" +
+                "1001,2025-01-10\n" +
+                "   \n" +
+                "1002,2025-01-11,99.1,CBOT,OPT"
+        ));
+
+        assertEquals(2, records.size());
+        assertEquals("1001", records.get(0).getInstrumentGuid());
+        assertEquals("", records.get(0).getPrice());
+        assertEquals("", records.get(0).getProductType());
+        assertEquals("OPT", records.get(1).getProductType());
+    }
+
+    @Test
+    void rowsLongerThanTheBuffer_shouldBeReadWhole() throws Exception {
+        String longValue = "x".repeat(200);
+        CsvTokenizer tokenizer = new CsvTokenizer(
+                new java.io.ByteArrayInputStream(("a,\"" + longValue + "\",c\nd,e,f\n").getBytes(StandardCharsets.UTF_8)), 16);
+
+        assertTrue(tokenizer.nextRow());
+        assertEquals(longValue, tokenizer.field(1));
+        assertEquals("c", tokenizer.field(2));
+        assertTrue(tokenizer.nextRow());
+        assertArrayEquals(new String[]{"d", "e", "f"}, tokenizer.fields());
+        assertFalse(tokenizer.nextRow());
+    }
+
+    @Test
+    void missingHeaders_shouldBeRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> csvReader.read(csv("instrumentGuid,tradeDate,price\n1001,2025-01-10,1.0\n")));
+        assertThrows(IllegalArgumentException.class, () -> csvReader.read(csv("")));
+    }
+
+    @Test
+    void compressedFiles_shouldBeDecompressedWhileRead() throws Exception {
+        byte[] csv = ("instrumentGuid,tradeDate,price,exchange,productType\n" +
+                "1001,2025-01-10,120.50,CME,FUT\n").getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(gzip)) {
+            out.write(csv);
+        }
+        ByteArrayOutputStream zstd = new ByteArrayOutputStream();
+        try (OutputStream out = new ZstdOutputStream(zstd)) {
+            out.write(csv);
+        }
+
+        for (byte[] content : List.of(gzip.toByteArray(), zstd.toByteArray())) {
+            List<PriceRecord> records = csvReader.read(
+                    new MockMultipartFile("file", "prices.csv.gz", "application/octet-stream", content));
+            assertEquals(1, records.size());
+            assertEquals("120.50", records.get(0).getPrice());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.cme.pricingValidation.service;
+
+import com.cme.pricingValidation.model.PriceRecord;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FieldParserTest {
+
+    private ParsedRecord parse(String guid, String tradeDate, String price) {
+        return FieldParser.parse(new PriceRecord(guid, tradeDate, price, "CME", "FUT"), new ParsedRecord());
+    }
+
+    @Test
+    void validFields_shouldBeParsedToTypedValues() {
+        ParsedRecord p = parse("1001", "2025-01-10", "120.5");
+
+        assertEquals(ParsedRecord.Status.OK, p.getGuidStatus());
+        assertEquals(1001L, p.getGuid());
+        assertEquals(ParsedRecord.Status.OK, p.getTradeDateStatus());
+        assertEquals(LocalDate.of(2025, 1, 10).toEpochDay(), p.getTradeDate());
+        assertEquals(ParsedRecord.Status.OK, p.getPriceStatus());
+        assertEquals(1205L, p.getPriceUnscaled());
+        assertEquals(1, p.getPriceScale());
+        assertEquals(12050L, p.getScaledPrice());
+    }
+
+    @Test
+    void blankFields_shouldBeMissing() {
+        ParsedRecord p = parse(" ", null, "");
+
+        assertEquals(ParsedRecord.Status.MISSING, p.getGuidStatus());
+        assertEquals(ParsedRecord.Status.MISSING, p.getTradeDateStatus());
+        assertEquals(ParsedRecord.Status.MISSING, p.getPriceStatus());
+    }
+
+    @Test
+    void malformedFields_shouldBeInvalid() {
+        for (String guid : new String[]{"abc", "12a", "-", "99999999999999999999"}) {
+            assertEquals(ParsedRecord.Status.INVALID, parse(guid, "2025-01-10", "1").getGuidStatus(), guid);
+        }
+        for (String date : new String[]{"2025/01/10", "2025-1-10", "2025-02-30", "2025-13-01", "2024-02-29x"}) {
+            assertEquals(ParsedRecord.Status.INVALID, parse("1", date, "1").getTradeDateStatus(), date);
+        }
+        for (String price : new String[]{"abc", "1.2.3", ".", "-", "1e5", "1234567890123456789"}) {
+            assertEquals(ParsedRecord.Status.INVALID, parse("1", "2025-01-10", price).getPriceStatus(), price);
+        }
+    }
+
+    @Test
+    void signedAndUnusualPrices_shouldKeepSignAndScale() {
+        ParsedRecord p = parse("1", "2025-01-10", "-0.125");
+        assertEquals(-125L, p.getPriceUnscaled());
+        assertEquals(3, p.getPriceScale());
+
+        p = parse("1", "2025-01-10", ".5");
+        assertEquals(5L, p.getPriceUnscaled());
+        assertEquals(1, p.getPriceScale());
+    }
+
+    @Test
+    void epochDay_shouldMatchLocalDate() {
+        for (LocalDate d = LocalDate.of(1899, 12, 1); d.isBefore(LocalDate.of(2101, 3, 1)); d = d.plusDays(1)) {
+            assertEquals(d.toEpochDay(), FieldParser.toEpochDay(d.getYear(), d.getMonthValue(), d.getDayOfMonth()));
+        }
+        assertEquals(ParsedRecord.Status.OK, parse("1", "2024-02-29", "1").getTradeDateStatus());
+    }
+}
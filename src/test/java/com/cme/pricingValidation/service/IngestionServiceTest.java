@@ -0,0 +1,159 @@
+package com.cme.pricingValidation.service;
+
+import com.cme.pricingValidation.entity.PriceRecordEntity;
+import com.cme.pricingValidation.model.ErrorCode;
+import com.cme.pricingValidation.model.PriceRecord;
+import com.cme.pricingValidation.model.PriceRecordView;
+import com.cme.pricingValidation.model.UploadBatch;
+import com.cme.pricingValidation.model.ValidationResult;
+import com.cme.pricingValidation.repository.PriceRecordFilter;
+import com.cme.pricingValidation.repository.PriceRecordRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class IngestionServiceTest {
+
+    @Autowired
+    private IngestionService ingestionService;
+    @Autowired
+    private ValidationService validationService;
+    @Autowired
+    private ReportService reportService;
+    @Autowired
+    private NaturalKeyIndex naturalKeys;
+    @Autowired
+    private IngestionMetrics metrics;
+    @Autowired
+    private PriceRecordRepository repository;
+    @Value("${pricing.batches.max-retained}")
+    private int maxBatches;
+
+    private String store(PriceRecord... records) {
+        return ingestionService.store(validationService.validateAll(List.of(records)));
+    }
+
+    @Test
+    void failedDelta_shouldKeepTheBatchSummary_andDefaultReports() {
+        String older = store(new PriceRecord("9101", "2024-01-02", "10", "CME", "FUT"));
+        String latest = store(new PriceRecord("9102", "2024-01-02", "10", "CME", "FUT"));
+        Map<String,Object> summary = reportService.getBatch(latest).getSummary();
+
+        Stream<PriceRecord> failing = Stream.of(new PriceRecord("9102", "2024-01-02", "10", "CME", "FUT"))
+                .peek(record -> {
+                    // while the delta runs the batch is reopened, and still the one reported on
+                    assertFalse(reportService.getBatch(latest).isFinished());
+                    assertEquals(latest, reportService.resolveBatchId(null));
+                    throw new IllegalStateException("upload interrupted");
+                });
+        assertThrows(IllegalStateException.class, () -> ingestionService.ingestDelta(latest, failing));
+
+        UploadBatch batch = reportService.getBatch(latest);
+        assertTrue(batch.isFinished());
+        assertEquals(summary, batch.getSummary());
+        assertEquals(latest, reportService.resolveBatchId(null));
+        assertEquals(older, reportService.resolveBatchId(older));
+    }
+
+    @Test
+    void delta_shouldNumberInsertedRows_asStored() {
+        PriceRecord first = new PriceRecord("9201", "2024-01-02", "10", "CME", "FUT");
+        PriceRecord second = new PriceRecord("9202", "2024-01-02", "10", "CME", "FUT");
+        String batchId = store(first, second);
+
+        List<ValidationResult> results = new ArrayList<>();
+        Map<String,Object> sum = ingestionService.ingestDelta(batchId,
+                Stream.of(first, second, new PriceRecord("9203", "2024-01-02", "abc", "CME", "FUT")), results::addAll);
+
+        assertEquals(1L, sum.get("inserted"));
+        assertEquals(1, results.size());
+        assertEquals(3, results.get(0).getRowNumber());
+        assertFalse(results.get(0).getIfValid());
+        assertEquals(List.of(3), reportService.invalidRowNumbers(batchId));
+    }
+
+    @Test
+    void resentRecords_shouldBeAlreadyStored_evenOnceTheirBatchIsEvicted() {
+        String today = LocalDate.now().toString();
+        PriceRecord record = new PriceRecord("9301", today, "10", "CME", "FUT");
+        String original = store(record);
+
+        List<ValidationResult> resent = validationService.validateAll(List.of(record));
+        String again = ingestionService.store(resent);
+        assertTrue(resent.get(0).hasError(ErrorCode.ALREADY_STORED));
+        assertEquals(List.of(1), reportService.invalidRowNumbers(again));
+
+        for (int i = 0; i <= maxBatches; i++) {
+            store(new PriceRecord(String.valueOf(9400 + i), today, "10", "CME", "FUT"));
+        }
+        assertNull(reportService.getBatch(original));
+        resent = validationService.validateAll(List.of(record));
+        ingestionService.store(resent);
+        assertTrue(resent.get(0).hasError(ErrorCode.ALREADY_STORED));
+    }
+
+    @Test
+    void deletedRecords_shouldNotCountAsStored_whileTheirBatchIsRetained() {
+        String today = LocalDate.now().toString();
+        PriceRecord record = new PriceRecord("9351", today, "10", "CME", "FUT");
+        String original = store(record);
+        repository.findAll().stream()
+                .filter(stored -> original.equals(stored.getBatchId()))
+                .forEach(stored -> {
+                    repository.delete(stored);
+                    naturalKeys.release(original, NaturalKeyIndex.Key.of(stored), stored.getId());
+                });
+
+        List<ValidationResult> resent = validationService.validateAll(List.of(record));
+        ingestionService.store(resent);
+        assertFalse(resent.get(0).hasError(ErrorCode.ALREADY_STORED));
+    }
+
+    @Test
+    void keptKeys_shouldSurviveARestart(@TempDir Path dir) {
+        String file = dir.resolve("duplicates.bin").toString();
+        PriceRecordEntity stored = new PriceRecordEntity("9361", LocalDate.now().toString(), "10", "CME", "FUT", 1, true, 0);
+        StoredDuplicateIndex index = new StoredDuplicateIndex(naturalKeys, reportService, metrics, true, 64, 0.01, 30, file);
+        index.addStored("evicted", List.of(stored));
+        index.save();
+
+        StoredDuplicateIndex restarted = new StoredDuplicateIndex(naturalKeys, reportService, metrics, true, 64, 0.01, 30, file);
+        restarted.restore();
+        PriceRecordEntity resent = new PriceRecordEntity("9361", LocalDate.now().toString(), "10.00", "CME", "FUT", 1, true, 0);
+        assertEquals(1, restarted.markStored("new", List.of(resent)));
+        assertTrue(ErrorCode.ALREADY_STORED.isSet(resent.getErrorCodes()));
+
+        restarted.prune(LocalDate.now().plusDays(31).toEpochDay());
+        assertEquals(0, restarted.size());
+    }
+
+    @Test
+    void errorMasks_shouldBeKnownFromStoring_forPagesByErrorType() {
+        String batchId = store(
+                new PriceRecord("9501", "2024-01-02", "abc", "CME", "FUT"),
+                new PriceRecord("9502", "2024-01-02", "10", "XXX", "FUT"),
+                new PriceRecord("9503", "2024-01-02", "10", "CME", "FUT"));
+
+        List<Integer> masks = reportService.errorMasks(batchId, ErrorCode.INVALID_PRICE_FORMAT);
+        assertEquals(List.of(ErrorCode.INVALID_PRICE_FORMAT.bit()), masks);
+        assertEquals(masks, repository.findInvalidErrorMasks(batchId).stream()
+                .filter(ErrorCode.INVALID_PRICE_FORMAT::isSet).toList());
+
+        PriceRecordFilter filter = new PriceRecordFilter().setBatchId(batchId)
+                .setErrorType(ErrorCode.INVALID_PRICE_FORMAT).setErrorMasks(masks);
+        assertEquals(List.of(1), repository.findPage(filter, null, 10).stream()
+                .map(PriceRecordView::getRowNumber).toList());
+    }
+}
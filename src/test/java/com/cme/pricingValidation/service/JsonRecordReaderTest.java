@@ -0,0 +1,52 @@
+package com.cme.pricingValidation.service;
+
+import com.cme.pricingValidation.model.PriceRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonRecordReaderTest {
+
+    private final JsonRecordReader reader = new JsonRecordReader(new ObjectMapper());
+
+    private InputStream ndjson(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void eachLine_shouldBeOneRecord() throws Exception {
+        List<PriceRecord> records;
+        try (Stream<PriceRecord> stream = reader.stream(ndjson(
+                "{\"instrumentGuid\":\"1001\",\"tradeDate\":\"2025-01-10\",\"price\":\"120.50\",\"exchange\":\"CME\",\"productType\":\"FUT\"}\n" +
+                "\n" +
+                "{\"instrumentGuid\":\"1002\",\"price\":\"99\"}\n"))) {
+            records = stream.toList();
+        }
+
+        assertEquals(2, records.size());
+        assertEquals("1001", records.get(0).getInstrumentGuid());
+        assertEquals("FUT", records.get(0).getProductType());
+        assertEquals("1002", records.get(1).getInstrumentGuid());
+        assertNull(records.get(1).getTradeDate());
+    }
+
+    @Test
+    void malformedLine_shouldFailAfterTheRecordsBeforeIt() throws Exception {
+        try (Stream<PriceRecord> stream = reader.stream(ndjson(
+                "{\"instrumentGuid\":\"1001\"}\n" +
+                "{\"instrumentGuid\":\n"))) {
+            Iterator<PriceRecord> it = stream.iterator();
+            assertEquals("1001", it.next().getInstrumentGuid());
+            assertThrows(UncheckedIOException.class, it::hasNext);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.cme.pricingValidation.service;
+
+import com.cme.pricingValidation.entity.PriceRecordEntity;
+import com.cme.pricingValidation.model.ErrorCode;
+import com.cme.pricingValidation.model.PriceRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceAnomalyRuleTest {
+
+    private static PriceRecord record(String guid, String date, String price) {
+        return new PriceRecord(guid, date, price, "CME", "FUT");
+    }
+
+    private static int check(PriceAnomalyRule rule, PriceRecord record) {
+        ParsedRecord parsed = new ParsedRecord();
+        FieldParser.parse(record, parsed);
+        return rule.check(record, parsed, 0);
+    }
+
+    // 40 stored prices alternating between 99 and 101 over consecutive days
+    private static void learn(PriceAnomalyRule rule) {
+        List<PriceRecordEntity> records = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            String date = "2024-01-" + String.format("%02d", 1 + i % 28);
+            records.add(new PriceRecordEntity("7", date, i % 2 == 0 ? "99" : "101.00", "CME", "FUT", i + 1, true, 0));
+        }
+        records.add(new PriceRecordEntity("7", "2024-01-28", "5000", "CME", "FUT", 41, false, ErrorCode.FUTURE_TRADE_DATE.bit()));
+        rule.stored(records);
+    }
+
+    @Test
+    void statistics_shouldMatchTheStoredValidPrices() {
+        PriceAnomalyRule rule = new PriceAnomalyRule(6, 50, 30);
+        learn(rule);
+
+        PriceStatistics.Snapshot stats = new PriceStatistics.Snapshot();
+        assertTrue(rule.getStatistics().get(7, stats));
+        assertEquals(40, stats.getCount());
+        assertEquals(10_000, stats.getMean(), 1e-9);
+        assertEquals(Math.sqrt(40 * 100.0 * 100.0 / 39), stats.getStdDev(), 1e-9);
+        assertEquals(10_100, stats.getLastPrice());
+        assertFalse(rule.getStatistics().get(8, stats));
+    }
+
+    @Test
+    void check_shouldFlagOutliersAndJumps_only() {
+        PriceAnomalyRule rule = new PriceAnomalyRule(6, 50, 30);
+        learn(rule);
+
+        assertEquals(0, check(rule, record("7", "2024-02-01", "103.50")));
+        assertEquals(ErrorCode.PRICE_OUTLIER.bit(), check(rule, record("7", "2024-02-01", "120")));
+        assertEquals(ErrorCode.PRICE_OUTLIER.bit() | ErrorCode.PRICE_JUMP.bit(),
+                check(rule, record("7", "2024-02-01", "160")));
+        // a backdated price is only held against the mean
+        assertEquals(ErrorCode.PRICE_OUTLIER.bit(), check(rule, record("7", "2023-12-01", "160")));
+        assertEquals(0, check(rule, record("8", "2024-02-01", "160")));
+        assertEquals(0, check(rule, record("7", "2024-02-01", "abc")));
+    }
+
+    @Test
+    void check_shouldWaitForMinSamples_beforeCheckingDeviation() {
+        PriceAnomalyRule rule = new PriceAnomalyRule(6, 0, 100);
+        learn(rule);
+
+        assertEquals(0, check(rule, record("7", "2024-02-01", "160")));
+    }
+
+    @Test
+    void check_shouldWaitForMinSamples_beforeCheckingJumps() {
+        PriceAnomalyRule rule = new PriceAnomalyRule(0, 50, 100);
+        learn(rule);
+
+        assertEquals(0, check(rule, record("7", "2024-02-01", "160")));
+    }
+
+    @Test
+    void upload_shouldOnlyCount_onceFinished_whateverItsChunks() {
+        List<PriceRecordEntity> records = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            PriceRecordEntity record = new PriceRecordEntity("7", "2024-01-" + String.format("%02d", 1 + i % 28),
+                    i % 2 == 0 ? "99" : "101", "CME", "FUT", i + 1, true, 0);
+            record.setBatchId("b1");
+            records.add(record);
+        }
+        PriceAnomalyRule whole = new PriceAnomalyRule(6, 50, 30);
+        PriceAnomalyRule chunked = new PriceAnomalyRule(6, 50, 30);
+        whole.stored(records);
+        for (int from = 0; from < records.size(); from += 7) {
+            chunked.stored(records.subList(from, Math.min(from + 7, records.size())));
+        }
+        // rows of an upload are never checked against each other
+        assertEquals(0, check(whole, record("7", "2024-02-01", "160")));
+        assertEquals(0, whole.getStatistics().size());
+
+        whole.finished("b1");
+        chunked.finished("b1");
+        PriceStatistics.Snapshot a = new PriceStatistics.Snapshot();
+        PriceStatistics.Snapshot b = new PriceStatistics.Snapshot();
+        assertTrue(whole.getStatistics().get(7, a));
+        assertTrue(chunked.getStatistics().get(7, b));
+        assertEquals(a.getCount(), b.getCount());
+        assertEquals(a.getMean(), b.getMean(), 1e-9);
+        assertEquals(a.getStdDev(), b.getStdDev(), 1e-9);
+        assertEquals(a.getLastPrice(), b.getLastPrice());
+        assertEquals(ErrorCode.PRICE_OUTLIER.bit() | ErrorCode.PRICE_JUMP.bit(),
+                check(whole, record("7", "2024-02-01", "160")));
+        assertEquals(check(whole, record("7", "2024-02-01", "120")), check(chunked, record("7", "2024-02-01", "120")));
+    }
+
+    @Test
+    void removed_shouldTakeTheRecordOutOfTheStatistics() {
+        PriceAnomalyRule rule = new PriceAnomalyRule(6, 50, 30);
+        learn(rule);
+        PriceRecordEntity last = new PriceRecordEntity("7", "2024-01-28", "160", "CME", "FUT", 42, true, 0);
+        rule.stored(List.of(last));
+
+        rule.removed(last);
+
+        PriceStatistics.Snapshot stats = new PriceStatistics.Snapshot();
+        assertTrue(rule.getStatistics().get(7, stats));
+        assertEquals(40, stats.getCount());
+        assertEquals(10_000, stats.getMean(), 1e-9);
+        assertEquals(Math.sqrt(40 * 100.0 * 100.0 / 39), stats.getStdDev(), 1e-9);
+        // the last price is gone with it, so only the deviation is checked
+        assertFalse(stats.hasLastPrice());
+        assertEquals(ErrorCode.PRICE_OUTLIER.bit(), check(rule, record("7", "2024-02-01", "160")));
+    }
+
+    private static PriceRecordEntity flagged(String price, int row, String batchId) {
+        PriceRecordEntity record = new PriceRecordEntity("7", "2024-02-01", price, "CME", "FUT", row, false,
+                ErrorCode.PRICE_JUMP.bit() | ErrorCode.PRICE_OUTLIER.bit());
+        record.setBatchId(batchId);
+        return record;
+    }
+
+    @Test
+    void history_shouldRestart_afterRepeatedFlagsOnTheSameSide() {
+        PriceAnomalyRule rule = new PriceAnomalyRule(6, 50, 2);
+        learn(rule);
+        List<PriceRecordEntity> shifted = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            shifted.add(flagged("200", i + 1, "b2"));
+        }
+        rule.stored(shifted);
+        // the upload is not learned before it is finished
+        assertEquals(ErrorCode.PRICE_OUTLIER.bit() | ErrorCode.PRICE_JUMP.bit(),
+                check(rule, record("7", "2024-02-02", "200")));
+
+        rule.finished("b2");
+
+        PriceStatistics.Snapshot stats = new PriceStatistics.Snapshot();
+        assertTrue(rule.getStatistics().get(7, stats));
+        assertEquals(5, stats.getCount());
+        assertEquals(20_000, stats.getMean(), 1e-9);
+        assertEquals(0, check(rule, record("7", "2024-02-02", "200")));
+        assertEquals(ErrorCode.PRICE_JUMP.bit(), check(rule, record("7", "2024-02-02", "90")));
+    }
+
+    @Test
+    void history_shouldBeKept_whenFlagsAreInterrupted() {
+        PriceAnomalyRule rule = new PriceAnomalyRule(6, 50, 2);
+        learn(rule);
+        rule.stored(List.of(flagged("200", 1, null), flagged("200", 2, null), flagged("200", 3, null),
+                flagged("5", 4, null), flagged("200", 5, null), flagged("200", 6, null),
+                new PriceRecordEntity("7", "2024-02-01", "100", "CME", "FUT", 7, true, 0),
+                flagged("200", 8, null), flagged("200", 9, null)));
+
+        PriceStatistics.Snapshot stats = new PriceStatistics.Snapshot();
+        assertTrue(rule.getStatistics().get(7, stats));
+        assertEquals(41, stats.getCount());
+        assertEquals(ErrorCode.PRICE_OUTLIER.bit() | ErrorCode.PRICE_JUMP.bit(),
+                check(rule, record("7", "2024-02-02", "200")));
+    }
+
+    @Test
+    void lookups_shouldSeeWrites_onceTheyArePublished() {
+        PriceStatistics statistics = new PriceStatistics(4);
+        PriceStatistics.Snapshot stats = new PriceStatistics.Snapshot();
+        statistics.add(7, 10_000, 19_000);
+        assertFalse(statistics.get(7, stats));
+
+        statistics.publish();
+        assertTrue(statistics.get(7, stats));
+        statistics.add(7, 12_000, 19_001);
+        assertTrue(statistics.get(7, stats));
+        assertEquals(1, stats.getCount());
+
+        statistics.publish();
+        assertTrue(statistics.get(7, stats));
+        assertEquals(2, stats.getCount());
+        assertEquals(12_000, stats.getLastPrice());
+    }
+
+    @Test
+    void statistics_shouldSurviveARestart(@TempDir Path dir) {
+        String file = dir.resolve("price-stats.bin").toString();
+        PriceAnomalyRule rule = new PriceAnomalyRule(6, 50, 30, 5, file);
+        learn(rule);
+        rule.save();
+
+        PriceAnomalyRule restarted = new PriceAnomalyRule(6, 50, 30, 5, file);
+        restarted.restore();
+
+        PriceStatistics.Snapshot stats = new PriceStatistics.Snapshot();
+        assertTrue(restarted.getStatistics().get(7, stats));
+        assertEquals(40, stats.getCount());
+        assertEquals(ErrorCode.PRICE_OUTLIER.bit(), check(restarted, record("7", "2024-02-01", "120")));
+    }
+}
@@ -0,0 +1,89 @@
+package com.cme.pricingValidation.service;
+
+import com.cme.pricingValidation.entity.PriceRecordEntity;
+import com.cme.pricingValidation.model.Exchange;
+import com.cme.pricingValidation.model.PriceRecord;
+import com.cme.pricingValidation.model.ProductType;
+import com.cme.pricingValidation.util.Fingerprint;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceColumnsTest {
+
+    @Test
+    void parsedRows_shouldBeStoredAsTypedValues() {
+        PriceColumns columns = new PriceColumns(4);
+        int row = columns.add("1001", "2025-01-10", "120.5", "cme", "FUT");
+
+        ParsedRecord parsed = columns.load(row, new ParsedRecord());
+        assertEquals(1001, parsed.getGuid());
+        assertEquals(LocalDate.of(2025, 1, 10).toEpochDay(), parsed.getTradeDate());
+        assertEquals(12_050, parsed.getScaledPrice());
+        assertEquals(Exchange.CME, parsed.getExchange());
+
+        PriceRecord record = columns.record(row);
+        assertEquals("120.50", record.getPrice());
+        assertEquals("CME", record.getExchange());
+
+        PriceRecordEntity entity = columns.entity(row, 7, 0);
+        assertEquals(1001L, entity.getInstrumentGuidValue());
+        assertEquals(new BigDecimal("120.50"), entity.getPriceValue());
+        assertEquals(ProductType.FUT, entity.getProductTypeValue());
+        assertEquals(7, entity.getRowNumber());
+        assertTrue(entity.isValid());
+    }
+
+    @Test
+    void unparsedRows_shouldKeepTheirText() {
+        PriceColumns columns = new PriceColumns(4);
+        int row = columns.add("1001", "2025-13-01", "1.005", "LSE", "FUT");
+
+        PriceRecord record = columns.record(row);
+        assertEquals("2025-13-01", record.getTradeDate());
+        assertEquals("1.005", record.getPrice());
+        assertEquals("LSE", record.getExchange());
+
+        PriceRecordEntity entity = columns.entity(row, 1, 3);
+        assertEquals("2025-13-01", entity.getTradeDate());
+        assertEquals("LSE", entity.getExchange());
+        assertFalse(entity.isValid());
+    }
+
+    @Test
+    void naturalKey_shouldCompareValues() {
+        PriceColumns columns = new PriceColumns(4);
+        columns.add("1001", "2025-01-10", "100", "CME", "FUT");
+        columns.add("1001", "2025-01-10", "100.00", "cme", "fut");
+        columns.add("1001", "2025-01-10", "100.01", "CME", "FUT");
+
+        Fingerprint a = columns.naturalKey(0, new Fingerprint());
+        Fingerprint b = columns.naturalKey(1, new Fingerprint());
+        Fingerprint c = columns.naturalKey(2, new Fingerprint());
+        assertEquals(a.high(), b.high());
+        assertEquals(a.low(), b.low());
+        assertNotEquals(a.low(), c.low());
+    }
+
+    @Test
+    void columnReader_shouldFillChunksUntilTheInputEnds() throws Exception {
+        String csv = "instrumentGuid,tradeDate,price,exchange,productType\n"
+                + "1,2025-01-10,1.00,CME,FUT\n2,2025-01-10,2.00,CME,FUT\n3,2025-01-10,3.00,CME,FUT\n";
+        PriceColumns chunk = new PriceColumns(2);
+        try (CSVReader.ColumnReader reader = new CSVReader().columns(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), "prices.csv")) {
+            assertEquals(2, reader.read(chunk));
+            assertTrue(chunk.isFull());
+            chunk.clear();
+            assertEquals(1, reader.read(chunk));
+            assertEquals("3", chunk.record(0).getInstrumentGuid());
+            chunk.clear();
+            assertEquals(0, reader.read(chunk));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.cme.pricingValidation.service;
+
+import com.cme.pricingValidation.model.ErrorCode;
+import com.cme.pricingValidation.model.PriceRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReferenceDataIndexTest {
+
+    @TempDir
+    Path dir;
+
+    private ReferenceDataIndex index(String csv) throws IOException {
+        Path file = dir.resolve("instruments.csv");
+        Files.writeString(file, csv);
+        ReferenceDataIndex index = new ReferenceDataIndex(file.toString(), "", null);
+        index.refresh(true);
+        return index;
+    }
+
+    private EnumSet<ErrorCode> errors(ValidationService service, String guid, String exchange, String productType) {
+        return ErrorCode.of(service.validateAll(List.of(
+                new PriceRecord(guid, "2025-01-10", "120.50", exchange, productType))).get(0).getErrorMask());
+    }
+
+    @Test
+    void records_shouldBeChecked_againstTheListing() throws IOException {
+        ReferenceDataIndex index = index("""
+                product_type,instrument_guid,exchange
+                FUT,1001,CME
+                OPT,1002,NYMEX
+                ,1003,CBOT
+                FUT,abc,CME
+                """);
+        assertEquals(3, index.getSnapshot().getInstruments());
+        assertEquals(1, index.getSnapshot().getSkipped());
+
+        List<ValidationRule> rules = new ArrayList<>(FieldRules.defaults());
+        rules.add(new ReferenceDataRule(index));
+        ValidationService service = new ValidationService(1, 10_000, rules);
+        assertEquals(EnumSet.noneOf(ErrorCode.class), errors(service, "1001", "CME", "FUT"));
+        assertEquals(EnumSet.of(ErrorCode.UNKNOWN_INSTRUMENT), errors(service, "9999", "CME", "FUT"));
+        assertEquals(EnumSet.of(ErrorCode.EXCHANGE_MISMATCH), errors(service, "1002", "CME", "OPT"));
+        assertEquals(EnumSet.of(ErrorCode.PRODUCT_TYPE_MISMATCH), errors(service, "1002", "NYMEX", "FUT"));
+        // no product type listed, any is accepted
+        assertEquals(EnumSet.noneOf(ErrorCode.class), errors(service, "1003", "CBOT", "OPT"));
+    }
+
+    @Test
+    void refresh_shouldSwapInTheNewFile_andKeepTheOldSnapshot_whenItFails() throws IOException {
+        ReferenceDataIndex index = index("instrument_guid,exchange\n1001,CME\n");
+        ReferenceDataIndex.Snapshot first = index.getSnapshot();
+        assertSame(first, index.refresh(false), "An unchanged file should not be reloaded");
+
+        Path file = dir.resolve("instruments.csv");
+        Files.writeString(file, "instrument_guid,exchange\n1001,CME\n1002,CME\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(first.getLoadedAt().toEpochMilli() + 60_000));
+        assertEquals(2, index.refresh(false).getInstruments());
+
+        Files.writeString(file, "price\n1\n");
+        assertThrows(IllegalArgumentException.class, () -> index.refresh(true));
+        assertEquals(2, index.getSnapshot().getInstruments());
+    }
+
+    @Test
+    void withoutASource_noReferenceRulesApply() {
+        ValidationService service = new ValidationService();
+        assertEquals(EnumSet.noneOf(ErrorCode.class), errors(service, "424242", "CME", "FUT"));
+    }
+}
@@ -0,0 +1,85 @@
+package com.cme.pricingValidation.service;
+
+import com.cme.pricingValidation.model.ErrorCode;
+import com.cme.pricingValidation.model.PriceRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleChainTest {
+
+    private static ValidationRule rule(String name, int cost, int errors, List<String> calls) {
+        return new ValidationRule() {
+            @Override public String name() { return name; }
+            @Override public int cost() { return cost; }
+            @Override public int check(PriceRecord record, ParsedRecord parsed, long today) {
+                calls.add(name);
+                return errors;
+            }
+        };
+    }
+
+    private static int run(RuleChain chain, int times) {
+        RuleChain.Tally tally = chain.newTally();
+        int errors = 0;
+        for (int i = 0; i < times; i++) {
+            errors = chain.check(new PriceRecord("", "", "", "", ""), new ParsedRecord(), 0, tally);
+        }
+        tally.flush();
+        return errors;
+    }
+
+    @Test
+    void rules_shouldRunInCostOrder_withoutDisabledRules_andBeCounted() {
+        List<String> calls = new ArrayList<>();
+        RuleChain chain = RuleChain.compile(List.of(
+                rule("lookup", 100, ErrorCode.UNKNOWN_INSTRUMENT.bit(), calls),
+                rule("guid", 10, ErrorCode.MISSING_GUID.bit(), calls),
+                rule("price", 10, 0, calls),
+                rule("off", 1, ErrorCode.MISSING_PRICE.bit(), calls)), Set.of("off"), false, true);
+
+        assertEquals(ErrorCode.MISSING_GUID.bit() | ErrorCode.UNKNOWN_INSTRUMENT.bit(), run(chain, 3));
+        assertEquals(List.of("guid", "price", "lookup"), calls.subList(0, 3));
+
+        List<RuleChain.RuleStats> stats = chain.stats();
+        assertEquals(List.of("guid", "price", "lookup"), stats.stream().map(RuleChain.RuleStats::getName).toList());
+        assertEquals(3, stats.get(0).getInvocations());
+        assertEquals(3, stats.get(0).getFailures());
+        assertEquals(0, stats.get(1).getFailures());
+        assertTrue(stats.get(2).getTotalNanos() >= 0);
+    }
+
+    @Test
+    void failFast_shouldStopAtTheFirstFailingRule() {
+        List<String> calls = new ArrayList<>();
+        RuleChain chain = RuleChain.compile(List.of(
+                rule("lookup", 100, ErrorCode.UNKNOWN_INSTRUMENT.bit(), calls),
+                rule("guid", 10, ErrorCode.MISSING_GUID.bit(), calls)), Set.of(), true, false);
+
+        assertEquals(ErrorCode.MISSING_GUID.bit(), run(chain, 1));
+        assertEquals(List.of("guid"), calls);
+        assertEquals(0, chain.stats().get(1).getInvocations());
+    }
+
+    @Test
+    void fieldRules_shouldParseOnlyTheFieldsTheyCheck_leavingDisabledOnesForLaterRules() {
+        RuleChain chain = RuleChain.compile(FieldRules.defaults(), Set.of("price"), false, false);
+        ParsedRecord parsed = new ParsedRecord().reset(new PriceRecord("1", "2024-01-02", "abc", "CME", "FUT"));
+
+        assertEquals(0, chain.check(null, parsed, 20000, chain.newTally()));
+        assertEquals(ParsedRecord.Status.OK, parsed.guidStatus);
+        assertNull(parsed.priceStatus);
+        assertEquals(ParsedRecord.Status.INVALID, parsed.getPriceStatus());
+    }
+
+    @Test
+    void duplicateRuleNames_shouldBeRejected() {
+        List<String> calls = new ArrayList<>();
+        assertThrows(IllegalArgumentException.class, () -> RuleChain.compile(List.of(
+                rule("price", 10, 0, calls), rule("price", 20, 0, calls)), Set.of(), false, true));
+    }
+}
@@ -1,11 +1,16 @@
 package com.cme.pricingValidation.service;
 
+import com.cme.pricingValidation.model.ErrorCode;
+import com.cme.pricingValidation.model.ErrorSummary;
 import com.cme.pricingValidation.model.PriceRecord;
+import com.cme.pricingValidation.model.ResponseDetail;
 import com.cme.pricingValidation.model.ValidationResult;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -148,4 +153,167 @@ class ValidationServiceTest {
                 "Expected duplicate record error message"
         );
     }
+
+    @Test
+    void duplicatesAcrossChunks_shouldReferenceOriginalRow() {
+        PriceRecord r1 = new PriceRecord("1001", "2025-01-10", "120.50", "CME", "FUT");
+        PriceRecord r2 = new PriceRecord("1002", "2025-01-10", "99.10", "CBOT", "OPT");
+        PriceRecord r3 = new PriceRecord("1001", "2025-01-10", "120.50", "CME", "FUT");
+
+        DuplicateTracker tracker = new DuplicateTracker();
+        List<ValidationResult> first = validationService.validateChunk(List.of(r1, r2), 1, tracker);
+        List<ValidationResult> second = validationService.validateChunk(List.of(r3), 3, tracker);
+
+        assertTrue(first.get(0).getIfValid());
+        assertTrue(first.get(1).getIfValid());
+        assertFalse(second.get(0).getIfValid(), "Duplicate in a later chunk should be invalid");
+        assertTrue(second.get(0).getErrors().contains("Duplicate Record of Row 1 at 3"));
+    }
+
+    @Test
+    void errors_shouldBeRecordedAsCodes_andRenderedAsMessages() {
+        PriceRecord record = new PriceRecord("10a1", "2025-01-10", "-5", "LSE", "FUT");
+
+        ValidationResult res = validationService.validateAll(List.of(record)).get(0);
+
+        assertTrue(res.hasError(ErrorCode.INVALID_GUID));
+        assertTrue(res.hasError(ErrorCode.NON_POSITIVE_PRICE));
+        assertTrue(res.hasError(ErrorCode.INVALID_EXCHANGE));
+        assertFalse(res.hasError(ErrorCode.INVALID_PRODUCT_TYPE));
+        assertEquals(List.of(
+                "Price must be positive at row 1: -5",
+                "Invalid instrument_guid format at row 1 (must be numeric): '10a1'",
+                "Invalid exchange at row 1: 'LSE'. Must be one of: [CME, NYMEX, CBOT, COMEX]"
+        ), res.getErrors());
+    }
+
+    @Test
+    void parallelValidation_shouldMatchSequentialOrderAndDuplicates() {
+        List<PriceRecord> records = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            records.add(new PriceRecord(
+                    String.valueOf(1000 + i % 7_000),
+                    i % 11 == 0 ? "2025-13-01" : "2025-01-10",
+                    i % 13 == 0 ? "abc" : "120.50",
+                    i % 17 == 0 ? "LSE" : "CME",
+                    "FUT"));
+        }
+
+        List<ValidationResult> sequential = validationService.validateAll(records);
+        ValidationService parallelService = new ValidationService(4, 1);
+        List<ValidationResult> parallel = parallelService.validateAll(records);
+
+        assertEquals(sequential.size(), parallel.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            assertSame(records.get(i), parallel.get(i).getPriceRecord());
+            assertEquals(sequential.get(i).getErrors(), parallel.get(i).getErrors(), "row " + (i + 1));
+        }
+        long duplicates = parallel.stream().filter(ValidationResult::isDuplicate).count();
+        assertTrue(duplicates > 0);
+        assertEquals(sequential.stream().filter(ValidationResult::isDuplicate).count(), duplicates);
+    }
+
+    @Test
+    void duplicates_shouldIgnoreExchangeAndProductTypeCase() {
+        PriceRecord r1 = new PriceRecord("1001", "2025-01-10", "120.50", "CME", "FUT");
+        PriceRecord r2 = new PriceRecord("1001", "2025-01-10", "120.50", "cme", "fut");
+
+        List<ValidationResult> results = validationService.validateAll(List.of(r1, r2));
+
+        assertFalse(results.get(0).isDuplicate());
+        assertTrue(results.get(1).isDuplicate());
+        assertEquals(1, results.get(1).getDuplicateOf());
+    }
+
+    @Test
+    void columnarValidation_shouldMatchRowValidation() {
+        List<PriceRecord> records = new ArrayList<>();
+        PriceColumns columns = new PriceColumns(20_000);
+        for (int i = 0; i < 20_000; i++) {
+            PriceRecord record = new PriceRecord(
+                    String.valueOf(1000 + i % 7_000),
+                    i % 11 == 0 ? "2025-13-01" : "2025-01-10",
+                    i % 13 == 0 ? "abc" : "120.50",
+                    i % 17 == 0 ? "LSE" : "CME",
+                    "FUT");
+            records.add(record);
+            columns.add(record.getInstrumentGuid(), record.getTradeDate(), record.getPrice(),
+                    record.getExchange(), record.getProductType());
+        }
+
+        List<ValidationResult> rows = validationService.validateAll(records);
+        int[] errors = new ValidationService(4, 1).validateColumns(columns, 1, new DuplicateTracker());
+
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(rows.get(i).getErrorMask(), errors[i], "row " + (i + 1));
+        }
+    }
+
+    @Test
+    void duplicates_shouldBeTheSame_onEveryPath_asStored() {
+        List<PriceRecord> records = List.of(
+                new PriceRecord("0123", "2025-01-10", "100", "cme", "fut"),
+                new PriceRecord("123", "2025-01-10", "100.00", "CME", "FUT"),
+                new PriceRecord("123", "2025-01-10", "100.001", "CME", "FUT"),
+                new PriceRecord("123", "2025-01-10", "100.001", "Cme", "FUT"),
+                new PriceRecord("abc", "2025-01-10", "100", "CME", "FUT"),
+                new PriceRecord("abc", "2025-01-10", "100.0", "CME", "FUT"),
+                new PriceRecord("123", "2025-01-10", "100.01", "CME", "FUT"));
+        boolean[] expected = {false, true, false, true, false, true, false};
+        PriceColumns columns = new PriceColumns(records.size());
+        for (PriceRecord record : records) {
+            columns.add(record.getInstrumentGuid(), record.getTradeDate(), record.getPrice(),
+                    record.getExchange(), record.getProductType());
+        }
+
+        List<ValidationResult> rows = validationService.validateAll(records);
+        int[] errors = validationService.validateColumns(columns, 1, new DuplicateTracker());
+
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(expected[i], rows.get(i).isDuplicate(), "row " + (i + 1));
+            assertEquals(expected[i], ErrorCode.DUPLICATE.isSet(errors[i]), "row " + (i + 1));
+            // the stored record has the key of the row it was stored from
+            assertEquals(NaturalKeyIndex.Key.of(records.get(i)),
+                    NaturalKeyIndex.Key.of(columns.entity(i, i + 1, errors[i])), "row " + (i + 1));
+        }
+    }
+
+    @Test
+    void summary_shouldCountErrorsByCode_withCappedSamples() {
+        List<PriceRecord> records = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            records.add(new PriceRecord(String.valueOf(1000 + i), "2025-01-10", i < 4 ? "abc" : "120.50", "CME", "FUT"));
+        }
+        records.add(new PriceRecord("1009", "2025-01-10", "120.50", "CME", "FUT"));
+
+        Map<String,Object> summary = validationService.summary(validationService.validateAll(records), 2, ResponseDetail.SUMMARY);
+
+        assertEquals(11, summary.get("total"));
+        assertEquals(6L, summary.get("valid"));
+        Map<ErrorCode,ErrorSummary.Entry> errors = ((ErrorSummary) summary.get("errorsByCode")).getByCode();
+        assertEquals(List.of(ErrorCode.INVALID_PRICE_FORMAT, ErrorCode.DUPLICATE), List.copyOf(errors.keySet()));
+        ErrorSummary.Entry invalidPrice = errors.get(ErrorCode.INVALID_PRICE_FORMAT);
+        assertEquals(4, invalidPrice.getCount());
+        assertEquals(2, invalidPrice.getSamples().size());
+        assertEquals(1, invalidPrice.getSamples().get(0).getRow());
+        assertEquals("Invalid price format at row 1: 'abc'", invalidPrice.getSamples().get(0).getMessage());
+        assertEquals("Duplicate Record of Row 10 at 11", errors.get(ErrorCode.DUPLICATE).getSamples().get(0).getMessage());
+        assertFalse(summary.containsKey("Errors"));
+    }
+
+    @Test
+    void fullSummary_shouldKeepEveryErrorMessage_underErrors() {
+        List<ValidationResult> results = validationService.validateAll(List.of(
+                new PriceRecord("1001", "2025-01-10", "abc", "CME", "FUT"),
+                new PriceRecord("1002", "2025-01-10", "120.50", "CME", "FUT"),
+                new PriceRecord("1001", "2025-01-10", "abc", "CME", "FUT")));
+
+        Map<String,Object> summary = validationService.summary(results, 5, ResponseDetail.FULL);
+
+        List<String> messages = new ArrayList<>();
+        for (ValidationResult r : results) messages.addAll(r.getErrors());
+        assertEquals(messages, summary.get("Errors"));
+        assertEquals(3, ((ErrorSummary) summary.get("errorsByCode")).getByCode().values().stream()
+                .mapToLong(ErrorSummary.Entry::getCount).sum());
+    }
 }
@@ -0,0 +1,120 @@
+package com.cme.pricingValidation.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentFingerprintMapTest {
+
+    private Fingerprint fp(long value) {
+        return new Fingerprint().add(value);
+    }
+
+    @Test
+    void removedKeys_shouldBeAbsent_andReusable_acrossRebuilds() {
+        ConcurrentFingerprintMap map = new ConcurrentFingerprintMap(4);
+        for (long i = 1; i <= 50_000; i++) {
+            Fingerprint f = fp(i);
+            assertEquals(ConcurrentFingerprintMap.ABSENT, map.putIfAbsent(f.high(), f.low(), i));
+        }
+        Fingerprint seven = fp(7);
+        assertFalse(map.remove(seven.high(), seven.low(), 8), "Only the holder may remove a key");
+        assertTrue(map.remove(seven.high(), seven.low(), 7));
+        assertEquals(ConcurrentFingerprintMap.ABSENT, map.get(seven.high(), seven.low()));
+        assertEquals(ConcurrentFingerprintMap.ABSENT, map.putIfAbsent(seven.high(), seven.low(), 70));
+        assertEquals(70, map.get(seven.high(), seven.low()));
+
+        for (long i = 8; i <= 50_000; i++) {
+            Fingerprint f = fp(i);
+            assertTrue(map.remove(f.high(), f.low(), i));
+        }
+        for (long i = 100_000; i < 150_000; i++) {
+            Fingerprint f = fp(i);
+            map.putIfAbsent(f.high(), f.low(), i);
+        }
+        assertEquals(50_007, map.size());
+        assertEquals(3, map.get(fp(3).high(), fp(3).low()));
+        assertEquals(ConcurrentFingerprintMap.ABSENT, map.get(fp(9).high(), fp(9).low()));
+    }
+
+    @Test
+    void forEach_shouldVisitLiveEntriesOnly() {
+        ConcurrentFingerprintMap map = new ConcurrentFingerprintMap(4);
+        for (long i = 1; i <= 1000; i++) {
+            Fingerprint f = fp(i);
+            map.putIfAbsent(f.high(), f.low(), i);
+        }
+        for (long i = 2; i <= 1000; i += 2) {
+            Fingerprint f = fp(i);
+            map.remove(f.high(), f.low(), i);
+        }
+        AtomicLong visited = new AtomicLong();
+        AtomicLong sum = new AtomicLong();
+        map.forEach((high, low, value) -> {
+            assertEquals(value, map.get(high, low));
+            visited.incrementAndGet();
+            sum.addAndGet(value);
+        });
+        assertEquals(500, visited.get());
+        assertEquals(500L * 500, sum.get());
+    }
+
+    @Test
+    void concurrentClaims_ofOneKey_shouldHaveOneWinner() throws Exception {
+        ConcurrentFingerprintMap map = new ConcurrentFingerprintMap();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (long key = 1; key <= 200; key++) {
+                Fingerprint f = fp(key);
+                AtomicInteger winners = new AtomicInteger();
+                List<Future<?>> claims = new ArrayList<>();
+                for (long id = 1; id <= 4; id++) {
+                    long claimant = id;
+                    claims.add(executor.submit(() -> {
+                        if (map.putIfAbsent(f.high(), f.low(), claimant) == ConcurrentFingerprintMap.ABSENT) {
+                            winners.incrementAndGet();
+                        }
+                    }));
+                }
+                for (Future<?> claim : claims) claim.get(10, TimeUnit.SECONDS);
+                assertEquals(1, winners.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void lookups_shouldSeeEveryEntryAddedBefore_whileTheTableIsRebuilt() throws Exception {
+        ConcurrentFingerprintMap map = new ConcurrentFingerprintMap(4);
+        AtomicLong added = new AtomicLong();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> writer = executor.submit(() -> {
+                for (long i = 1; i <= 200_000; i++) {
+                    Fingerprint f = fp(i);
+                    map.putIfAbsent(f.high(), f.low(), i);
+                    added.set(i);
+                }
+            });
+            while (!writer.isDone()) {
+                long last = added.get();
+                if (last == 0) continue;
+                Fingerprint f = fp(last);
+                assertEquals(last, map.get(f.high(), f.low()), "key " + last);
+            }
+            writer.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
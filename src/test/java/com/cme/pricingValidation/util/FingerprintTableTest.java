@@ -0,0 +1,50 @@
+package com.cme.pricingValidation.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FingerprintTableTest {
+
+    private Fingerprint fp(String... fields) {
+        Fingerprint fingerprint = new Fingerprint();
+        for (String field : fields) {
+            fingerprint.add(field);
+        }
+        return fingerprint;
+    }
+
+    @Test
+    void putIfAbsent_shouldKeepTheFirstValue_acrossGrowth() {
+        FingerprintTable table = new FingerprintTable(4);
+        for (int i = 1; i <= 100_000; i++) {
+            Fingerprint f = fp(String.valueOf(i));
+            assertEquals(FingerprintTable.ABSENT, table.putIfAbsent(f.high(), f.low(), i));
+        }
+        for (int i = 1; i <= 100_000; i++) {
+            Fingerprint f = fp(String.valueOf(i));
+            assertEquals(i, table.putIfAbsent(f.high(), f.low(), i + 1));
+            assertEquals(i, table.get(f.high(), f.low()));
+        }
+        assertEquals(100_000, table.size());
+        Fingerprint missing = fp("0");
+        assertEquals(FingerprintTable.ABSENT, table.get(missing.high(), missing.low()));
+    }
+
+    @Test
+    void fieldBoundaries_shouldChangeTheFingerprint() {
+        Fingerprint a = fp("ab", "c");
+        Fingerprint b = fp("a", "bc");
+        assertNotEquals(a.high(), b.high());
+        assertNotEquals(a.low(), b.low());
+    }
+
+    @Test
+    void normalizedFields_shouldIgnoreCaseAndSurroundingWhitespace() {
+        Fingerprint a = new Fingerprint().addNormalized(" cme");
+        Fingerprint b = new Fingerprint().addNormalized("CME ");
+        assertEquals(a.high(), b.high());
+        assertEquals(a.low(), b.low());
+        assertNotEquals(new Fingerprint().add("cme").high(), new Fingerprint().add("CME").high());
+    }
+}
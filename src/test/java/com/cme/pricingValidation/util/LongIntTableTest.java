@@ -0,0 +1,26 @@
+package com.cme.pricingValidation.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongIntTableTest {
+
+    @Test
+    void put_shouldReplaceTheValue_andKeepAllKeys_acrossGrowth() {
+        LongIntTable table = new LongIntTable(4);
+        for (long key = 1; key <= 100_000; key++) {
+            assertEquals(LongIntTable.ABSENT, table.put(key * 31, (int) key));
+        }
+        assertEquals(7, table.put(7 * 31, 8));
+        assertEquals(8, table.get(7 * 31));
+        assertEquals(99_999, table.get(99_999L * 31));
+        assertEquals(LongIntTable.ABSENT, table.get(30));
+        assertEquals(100_000, table.size());
+    }
+
+    @Test
+    void put_shouldRejectValuesThatCannotBeTold_fromAbsent() {
+        assertThrows(IllegalArgumentException.class, () -> new LongIntTable().put(1, 0));
+    }
+}
@@ -0,0 +1,80 @@
+package com.cme.pricingValidation.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultipartPartsTest {
+
+    private static final String BOUNDARY = "----formBoundary7MA4";
+
+    private static String body(String file) {
+        return "preamble\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"comment\"\r\n"
+                + "\r\n"
+                + "skipped\r\n"
+                + "--" + BOUNDARY + "  \r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"prices.csv\"\r\n"
+                + "Content-Type: text/csv\r\n"
+                + "\r\n"
+                + file + "\r\n"
+                + "--" + BOUNDARY + "--\r\n";
+    }
+
+    // hands out a few bytes per read, as a slow network would
+    private static InputStream trickle(String body) {
+        return new FilterInputStream(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))) {
+            private int next;
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                next = next % 7 + 1;
+                return super.read(b, off, Math.min(len, next));
+            }
+        };
+    }
+
+    @Test
+    void parts_shouldEndAtTheirBoundary_whateverTheReadSizes() throws IOException {
+        String file = "instrumentGuid,price\r\n1,--" + BOUNDARY.substring(0, 10) + "\r\n\r\n--\r\n2,3";
+        try (MultipartParts parts = new MultipartParts(trickle(body(file)), BOUNDARY)) {
+            MultipartParts.Part comment = parts.next();
+            assertEquals("comment", comment.getName());
+            assertNull(comment.getFileName());
+
+            MultipartParts.Part part = parts.next();
+            assertEquals("file", part.getName());
+            assertEquals("prices.csv", part.getFileName());
+            assertEquals("text/csv", part.getContentType());
+            assertEquals(file, new String(part.getContent().readAllBytes(), StandardCharsets.UTF_8));
+
+            assertNull(parts.next());
+            assertNull(parts.next());
+        }
+    }
+
+    @Test
+    void truncatedBody_shouldFail() {
+        String body = body("1,2,3");
+        MultipartParts parts = new MultipartParts(trickle(body.substring(0, body.length() - 20)), BOUNDARY);
+        assertThrows(IOException.class, () -> {
+            parts.next();
+            parts.next().getContent().readAllBytes();
+        });
+    }
+
+    @Test
+    void boundary_shouldBeReadFromTheContentType() {
+        assertEquals("abc", MultipartParts.boundary("multipart/form-data; boundary=abc"));
+        assertEquals("a b", MultipartParts.boundary("Multipart/Form-Data;charset=UTF-8; Boundary=\"a b\""));
+        assertNull(MultipartParts.boundary("text/csv; boundary=abc"));
+        assertNull(MultipartParts.boundary("multipart/form-data"));
+    }
+}
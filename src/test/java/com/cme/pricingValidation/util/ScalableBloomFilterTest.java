@@ -0,0 +1,65 @@
+package com.cme.pricingValidation.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScalableBloomFilterTest {
+
+    private Fingerprint fp(long value) {
+        return new Fingerprint().add(value);
+    }
+
+    @Test
+    void addedFingerprints_shouldAlwaysBeFound_acrossGrowth() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1000, 0.01);
+        for (long i = 0; i < 100_000; i++) {
+            Fingerprint f = fp(i);
+            filter.add(f.high(), f.low());
+        }
+        for (long i = 0; i < 100_000; i++) {
+            Fingerprint f = fp(i);
+            assertTrue(filter.mightContain(f.high(), f.low()), "Missing " + i);
+        }
+        assertTrue(filter.size() > 95_000, "Most fingerprints should count as added");
+    }
+
+    @Test
+    void falsePositiveRate_shouldStayBelowTwiceTheInitialRate() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1000, 0.01);
+        for (long i = 0; i < 50_000; i++) {
+            Fingerprint f = fp(i);
+            filter.add(f.high(), f.low());
+        }
+        int falsePositives = 0;
+        for (long i = 1_000_000; i < 1_100_000; i++) {
+            Fingerprint f = fp(i);
+            if (filter.mightContain(f.high(), f.low())) falsePositives++;
+        }
+        assertTrue(falsePositives < 2_000, "False positives: " + falsePositives);
+    }
+
+    @Test
+    void filter_shouldRoundTripThroughItsSnapshot() throws IOException {
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01);
+        for (long i = 0; i < 1000; i++) {
+            Fingerprint f = fp(i);
+            filter.add(f.high(), f.low());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        filter.writeTo(new DataOutputStream(bytes));
+        ScalableBloomFilter copy = ScalableBloomFilter.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(filter.size(), copy.size());
+        for (long i = 0; i < 1000; i++) {
+            Fingerprint f = fp(i);
+            assertTrue(copy.mightContain(f.high(), f.low()));
+        }
+    }
+}